@@ -25,20 +25,31 @@
 
 package com.sonymobile.jenkins.plugins.gitlab.gitlabauth;
 
+import com.google.common.base.Ticker;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
 import com.sonymobile.gitlab.api.GitLabApiClient;
 import com.sonymobile.gitlab.exceptions.GitLabApiException;
 import com.sonymobile.gitlab.exceptions.GroupNotFoundException;
 import com.sonymobile.gitlab.exceptions.UserNotFoundException;
 import com.sonymobile.gitlab.model.GitLabAccessLevel;
 import com.sonymobile.gitlab.model.GitLabGroupInfo;
-import com.sonymobile.gitlab.model.GitLabGroupMemberInfo;
 import com.sonymobile.gitlab.model.GitLabUserInfo;
 import com.sonymobile.jenkins.plugins.gitlab.gitlabapi.GitLabConfiguration;
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.cache.CacheSettings;
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.cache.CacheSnapshot;
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.cache.CacheStatistics;
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.cache.LatencyRecorder;
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.cache.LatencyRecordingCacheLoader;
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.cache.NegativeResultCache;
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.cache.RefreshAheadCacheLoader;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -55,7 +66,7 @@ import static com.google.common.base.Preconditions.checkArgument;
  */
 public class GitLab {
     /** The singleton implementation instance. */
-    private static Implementation instance = new Implementation();
+    private static volatile Implementation instance = new Implementation();
 
     private GitLab() {
         /* no public constructor */
@@ -73,34 +84,83 @@ public class GitLab {
     }
 
     /**
-     * Gets information about a member in a group.
+     * Gets the members of a group.
+     *
+     * @param groupId ID of the group
+     * @return the members of the group or null if the group doesn't exist
+     * @throws GitLabApiException if the connection against GitLab failed
+     */
+    public static GitLabGroupMembers getGroupMembers(int groupId) throws GitLabApiException {
+        return instance.getGroupMembers(groupId);
+    }
+
+    /**
+     * Checks if a user is a member of a group without being blocked.
      *
      * @param userId  ID of the user
      * @param groupId ID of the group
-     * @return group membership information or null user or group doesn't exist or user isn't member of group
+     * @return true if the user is an active member, false if the user or group doesn't exist or user isn't member
      * @throws GitLabApiException if the connection against GitLab failed
      */
-    public static GitLabGroupMemberInfo getGroupMember(int userId, int groupId) throws GitLabApiException {
-        return instance.getGroupMember(userId, groupId);
+    public static boolean isActiveGroupMember(int userId, int groupId) throws GitLabApiException {
+        GitLabGroupMembers members = getGroupMembers(groupId);
+        return members != null && members.isActiveMember(userId);
     }
 
     /**
-     * Gets information about a member in a group.
+     * Checks if a user is a member of a group without being blocked.
      *
      * @param userId    ID of the user
      * @param groupPath the group path
-     * @return group membership information or null user or group doesn't exist or user isn't member of group
+     * @return true if the user is an active member, false if the user or group doesn't exist or user isn't member
      * @throws GitLabApiException if the connection against GitLab failed
      */
-    public static GitLabGroupMemberInfo getGroupMember(int userId, String groupPath) throws GitLabApiException {
+    public static boolean isActiveGroupMember(int userId, String groupPath) throws GitLabApiException {
         GitLabGroupInfo group = getGroupByPath(groupPath);
+        // false if the group doesn't exist
+        return group != null && isActiveGroupMember(userId, group.getId());
+    }
 
-        if (group == null) {
-            // group doesn't exist
-            return null;
-        } else {
-            return instance.getGroupMember(userId, group.getId());
-        }
+    /**
+     * Gets the groups a user is a member of.
+     *
+     * This is a lookup in the membership index and only includes groups which members currently are cached, groups
+     * which cached members have expired are excluded even if the index hasn't been updated yet. Blocked memberships
+     * are not included.
+     *
+     * @param userId ID of the user
+     * @return an unmodifiable map from group IDs to the access levels of the user
+     */
+    public static Map<Integer, GitLabAccessLevel> getGroupMemberships(int userId) {
+        return instance.getGroupMemberships(userId);
+    }
+
+    /**
+     * Gets the groups among a collection of groups a user is a member of.
+     *
+     * The members of any of the groups not currently cached are loaded first. Blocked memberships are not included.
+     *
+     * @param userId   ID of the user
+     * @param groupIds IDs of the groups
+     * @return an unmodifiable map from group IDs to the access levels of the user, may include other groups
+     * @throws GitLabApiException if the connection against GitLab failed
+     */
+    public static Map<Integer, GitLabAccessLevel> getGroupMemberships(int userId, Collection<Integer> groupIds)
+            throws GitLabApiException {
+        return instance.getGroupMemberships(userId, groupIds);
+    }
+
+    /**
+     * Gets the generation of the cached memberships of a user.
+     *
+     * The generation changes whenever a cached membership of the user is added, removed or changes access level,
+     * and when the cached user or groups of the user are invalidated.
+     *
+     * @param userId ID of the user
+     * @return the generation
+     */
+    public static long getMembershipGeneration(int userId) {
+        return instance.getMembershipGeneration(userId);
     }
 
     /**
@@ -203,9 +263,9 @@ public class GitLab {
      * @throws GitLabApiException if the connection against GitLab failed
      */
     public static GitLabAccessLevel getAccessLevelInGroup(int userId, int groupId) throws GitLabApiException {
-        GitLabGroupMemberInfo member = getGroupMember(userId, groupId);
-        // no access if user isn't a member of the group
-        return member == null ? GitLabAccessLevel.NONE : member.getAccessLevel();
+        GitLabGroupMembers members = getGroupMembers(groupId);
+        // no access if the group doesn't exist or user isn't a member of the group
+        return members == null ? GitLabAccessLevel.NONE : members.getAccessLevel(userId);
     }
 
     /**
@@ -218,6 +278,102 @@ public class GitLab {
         return instance.getUrlForGroup(group);
     }
 
+    /**
+     * Gets the settings currently used by the caches.
+     *
+     * @return the cache settings
+     */
+    public static CacheSettings getCacheSettings() {
+        return instance.getSettings();
+    }
+
+    /**
+     * Changes the settings for the caches.
+     *
+     * All cached data is discarded if the settings differ from the current settings.
+     *
+     * @param settings the cache settings
+     */
+    public static synchronized void configureCaches(CacheSettings settings) {
+        if (!settings.equals(instance.getSettings())) {
+            setInstance(new Implementation(Ticker.systemTicker(), settings));
+        }
+    }
+
+    /**
+     * Gets statistics for the user, group members and groups caches.
+     *
+     * @return a list of statistics, one for each cache
+     */
+    public static List<CacheStatistics> getCacheStatistics() {
+        return instance.getCacheStatistics();
+    }
+
+    /**
+     * Discards all cached data for a user.
+     *
+     * This includes the user itself, whether the user is missing and the groups visible to the user.
+     *
+     * @param userId ID of the user
+     */
+    public static void invalidateUser(int userId) {
+        instance.invalidateUser(userId);
+    }
+
+    /**
+     * Discards the cached members of a group and whether the group is missing.
+     *
+     * @param groupId ID of the group
+     */
+    public static void invalidateGroup(int groupId) {
+        instance.invalidateGroup(groupId);
+    }
+
+    /**
+     * Discards the cached list of groups visible to a user.
+     *
+     * @param userId ID of the user
+     */
+    public static void invalidateGroupsAsUser(int userId) {
+        instance.invalidateGroupsAsUser(userId);
+    }
+
+    /**
+     * Discards all cached groups lists, for all users as well as for each user.
+     */
+    public static void invalidateGroups() {
+        instance.invalidateGroups();
+    }
+
+    /**
+     * Discards all cached data.
+     */
+    public static void invalidateAll() {
+        instance.invalidateAll();
+    }
+
+    /**
+     * Creates a snapshot of the cached groups and group members.
+     *
+     * @return the snapshot
+     */
+    public static CacheSnapshot createCacheSnapshot() {
+        return instance.createCacheSnapshot(System.currentTimeMillis());
+    }
+
+    /**
+     * Loads groups and group members from a snapshot into the caches.
+     *
+     * Data already cached is not replaced. Loaded data expires like data retrieved from GitLab, but never later than
+     * the maximum age counted from when the snapshot was created, so nothing is loaded from an older snapshot.
+     *
+     * @param snapshot the snapshot
+     * @param maxAge   the maximum age of the loaded data in milliseconds
+     */
+    public static void loadCacheSnapshot(CacheSnapshot snapshot, long maxAge) {
+        instance.loadCacheSnapshot(snapshot, maxAge, System.currentTimeMillis());
+    }
+
     /**
      * Returns the singleton implementation.
      *
@@ -240,51 +396,146 @@ public class GitLab {
      * Singleton implementation.
      */
     private static class Implementation {
+        /** The settings used for the caches. */
+        private final CacheSettings settings;
+
+        /** The ticker used by the caches. */
+        private final Ticker ticker;
+
+        /** The data loaded from a snapshot which hasn't expired yet, or null if there is none. */
+        private volatile LoadedSnapshot loadedSnapshot;
+
         /** A cache storing users. */
         private final LoadingCache<Integer, GitLabUserInfo> cachedUsers;
 
         /** A cache for storing memberships for groups. */
-        private final LoadingCache<Integer, Map<Integer, GitLabGroupMemberInfo>> cachedGroupMemberships;
+        private final LoadingCache<Integer, GitLabGroupMembers> cachedGroupMemberships;
 
         /** A cache for storing groups. */
         private final LoadingCache<Integer, GitLabGroupRegistry> cachedGroups;
 
+        /** A cache remembering user IDs of missing users. */
+        private final NegativeResultCache<Integer> missingUsers;
+
+        /** A cache remembering group IDs of missing groups. */
+        private final NegativeResultCache<Integer> missingGroups;
+
+        /** The reverse index of the cached group memberships. */
+        private final GitLabMembershipIndex membershipIndex = new GitLabMembershipIndex();
+
+        /** The load latencies of the user cache. */
+        private final LatencyRecorder userLoadLatency = new LatencyRecorder();
+
+        /** The load latencies of the group members cache. */
+        private final LatencyRecorder groupMembersLoadLatency = new LatencyRecorder();
+
+        /** The load latencies of the groups cache. */
+        private final LatencyRecorder groupsLoadLatency = new LatencyRecorder();
+
         /**
          * Creates a new standard implementation.
          */
         public Implementation() {
-            // use a standard cache builder
-            this(CacheBuilder.newBuilder());
+            // use the system ticker and the default settings
+            this(Ticker.systemTicker(), CacheSettings.DEFAULT);
+        }
+
+        /**
+         * Creates a new implementation with a custom ticker and the default settings.
+         *
+         * @param ticker the ticker used by the caches
+         */
+        public Implementation(Ticker ticker) {
+            this(ticker, CacheSettings.DEFAULT);
         }
 
         /**
-         * Creates a new implementation with a custom cache builder.
+         * Creates a new implementation with a custom ticker.
          *
-         * @param cacheBuilder the cache builder to use.
+         * @param ticker   the ticker used by the caches
+         * @param settings the cache settings
          */
-        public Implementation(CacheBuilder cacheBuilder) {
-            // cache for 1 minute
-            cacheBuilder.expireAfterWrite(1, TimeUnit.MINUTES);
+        public Implementation(Ticker ticker, CacheSettings settings) {
+            this.settings = settings;
+            this.ticker = ticker;
 
             // cache users with userId -> user
-            cachedUsers = cacheBuilder.build(new UserCacheLoader());
+            cachedUsers = newCacheBuilder(ticker).build(wrapLoader(new UserCacheLoader(), userLoadLatency));
 
-            // cache group members with groupId -> map of userId -> user
-            cachedGroupMemberships = cacheBuilder.build(new GroupMembershipsCacheLoader());
+            // cache group members with groupId -> members, removing evicted groups from the index
+            cachedGroupMemberships = newCacheBuilder(ticker)
+                    .removalListener(new GroupMembershipsRemovalListener())
+                    .build(wrapLoader(new GroupMembershipsCacheLoader(), groupMembersLoadLatency));
 
             // cache groups with user ID -> groups registry (user ID 0 for all users)
-            cachedGroups = cacheBuilder.build(new GroupsCacheLoader());
+            cachedGroups = newCacheBuilder(ticker).build(wrapLoader(new GroupsCacheLoader(), groupsLoadLatency));
+
+            // remember users and groups not found by the API
+            long negativeDuration = settings.getNegativeExpiryDuration().toMilliseconds();
+            missingUsers = new NegativeResultCache<Integer>(ticker, negativeDuration,
+                    settings.getNegativeMaximumSize());
+            missingGroups = new NegativeResultCache<Integer>(ticker, negativeDuration,
+                    settings.getNegativeMaximumSize());
+        }
+
+        /**
+         * Gets the settings used for the caches.
+         *
+         * @return the settings
+         */
+        public CacheSettings getSettings() {
+            return settings;
+        }
+
+        /**
+         * Creates a cache builder using the settings.
+         *
+         * @param ticker the ticker used by the cache
+         * @return a cache builder
+         */
+        private CacheBuilder<Object, Object> newCacheBuilder(Ticker ticker) {
+            CacheBuilder<Object, Object> cacheBuilder = CacheBuilder.newBuilder().ticker(ticker).recordStats();
+            cacheBuilder.expireAfterWrite(settings.getExpiryDuration().toMilliseconds(), TimeUnit.MILLISECONDS);
+
+            if (settings.isRefreshAhead()) {
+                // reload accessed entries in the background before they expire
+                cacheBuilder.refreshAfterWrite(settings.getRefreshAfterMilliseconds(), TimeUnit.MILLISECONDS);
+            }
+            return cacheBuilder;
+        }
+
+        /**
+         * Wraps a cache loader to record load latencies and to reload entries in the background if refreshing ahead
+         * is enabled.
+         *
+         * @param loader   the cache loader
+         * @param recorder the recorder for the load latencies
+         * @param <K>      the key type
+         * @param <V>      the value type
+         * @return a cache loader
+         */
+        private <K, V> CacheLoader<K, V> wrapLoader(CacheLoader<K, V> loader, LatencyRecorder recorder) {
+            CacheLoader<K, V> recordingLoader = new LatencyRecordingCacheLoader<K, V>(loader, recorder);
+            if (settings.isRefreshAhead()) {
+                return new RefreshAheadCacheLoader<K, V>(recordingLoader, settings.getRefreshJitterMilliseconds());
+            }
+            return recordingLoader;
         }
 
         /**
          * @see GitLab#getUser(int)
          */
         public GitLabUserInfo getUser(int userId) throws GitLabApiException {
+            if (missingUsers.isMissing(userId)) {
+                return null;
+            }
+
             try {
                 // throws UserNotFoundException if user is missing
                 return cachedUsers.get(userId);
             } catch (ExecutionException e) {
                 if (e.getCause() instanceof UserNotFoundException) {
+                    missingUsers.markMissing(userId);
                     return null;
                 } else if (e.getCause() instanceof GitLabApiException) {
                     // throw any GitLabApiExceptions
@@ -297,14 +548,71 @@ public class GitLab {
         }
 
         /**
-         * @see GitLab#getGroupMember(int, int)
+         * @see GitLab#getGroupMemberships(int)
+         */
+        public Map<Integer, GitLabAccessLevel> getGroupMemberships(int userId) {
+            return excludeExpiredGroups(membershipIndex.getGroupsForUser(userId));
+        }
+
+        /**
+         * @see GitLab#getGroupMemberships(int, Collection)
+         */
+        public Map<Integer, GitLabAccessLevel> getGroupMemberships(int userId, Collection<Integer> groupIds)
+                throws GitLabApiException {
+            for (Integer groupId : groupIds) {
+                // make sure the members of the group are cached and indexed
+                getGroupMembers(groupId);
+            }
+            return excludeExpiredGroups(membershipIndex.getGroupsForUser(userId));
+        }
+
+        /**
+         * Excludes memberships in groups which members are no longer cached.
+         *
+         * Expired members are only removed from the index once the cache is maintained, which happens during later
+         * cache operations.
+         *
+         * @param memberships the memberships from the index
+         * @return an unmodifiable map from group IDs to the access levels of the user
+         */
+        private Map<Integer, GitLabAccessLevel> excludeExpiredGroups(Map<Integer, GitLabAccessLevel> memberships) {
+            expireLoadedSnapshot();
+            // doesn't affect the statistics of the cache unlike lookups
+            Map<Integer, GitLabGroupMembers> cachedMembers = cachedGroupMemberships.asMap();
+            Map<Integer, GitLabAccessLevel> filtered = null;
+            for (Integer groupId : memberships.keySet()) {
+                if (!cachedMembers.containsKey(groupId)) {
+                    if (filtered == null) {
+                        filtered = new HashMap<Integer, GitLabAccessLevel>(memberships);
+                    }
+                    filtered.remove(groupId);
+                }
+            }
+            return filtered != null ? Collections.unmodifiableMap(filtered) : memberships;
+        }
+
+        /**
+         * @see GitLab#getMembershipGeneration(int)
          */
-        public GitLabGroupMemberInfo getGroupMember(int userId, int groupId) throws GitLabApiException {
+        public long getMembershipGeneration(int userId) {
+            return membershipIndex.getGeneration(userId);
+        }
+
+        /**
+         * @see GitLab#getGroupMembers(int)
+         */
+        public GitLabGroupMembers getGroupMembers(int groupId) throws GitLabApiException {
+            expireLoadedSnapshot();
+            if (missingGroups.isMissing(groupId)) {
+                return null;
+            }
+
             try {
-                // throws GroupNotFoundException if group is missing, returns null if user is missing from group
-                return cachedGroupMemberships.get(groupId).get(userId);
+                // throws GroupNotFoundException if group is missing
+                return cachedGroupMemberships.get(groupId);
             } catch (ExecutionException e) {
                 if (e.getCause() instanceof GroupNotFoundException) {
+                    missingGroups.markMissing(groupId);
                     return null;
                 } else if (e.getCause() instanceof GitLabApiException) {
                     // throw any GitLabApiExceptions
@@ -316,10 +624,152 @@ public class GitLab {
             }
         }
 
+        /**
+         * @see GitLab#getCacheStatistics()
+         */
+        public List<CacheStatistics> getCacheStatistics() {
+            List<CacheStatistics> statistics = new ArrayList<CacheStatistics>(3);
+            statistics.add(new CacheStatistics("users", cachedUsers.size(), cachedUsers.stats(), userLoadLatency,
+                    missingUsers));
+            statistics.add(new CacheStatistics("groupMembers", cachedGroupMemberships.size(),
+                    cachedGroupMemberships.stats(), groupMembersLoadLatency, missingGroups));
+            statistics.add(new CacheStatistics("groups", cachedGroups.size(), cachedGroups.stats(),
+                    groupsLoadLatency));
+            return statistics;
+        }
+
+        /**
+         * @see GitLab#invalidateUser(int)
+         */
+        public void invalidateUser(int userId) {
+            cachedUsers.invalidate(userId);
+            missingUsers.invalidate(userId);
+            cachedGroups.invalidate(userId);
+            membershipIndex.invalidateGeneration(userId);
+        }
+
+        /**
+         * @see GitLab#invalidateGroup(int)
+         */
+        public void invalidateGroup(int groupId) {
+            // the removal listener removes the members from the index
+            cachedGroupMemberships.invalidate(groupId);
+            missingGroups.invalidate(groupId);
+        }
+
+        /**
+         * @see GitLab#invalidateGroupsAsUser(int)
+         */
+        public void invalidateGroupsAsUser(int userId) {
+            cachedGroups.invalidate(userId);
+            // the groups of the user are used to find the memberships of the user
+            membershipIndex.invalidateGeneration(userId);
+        }
+
+        /**
+         * @see GitLab#invalidateGroups()
+         */
+        public void invalidateGroups() {
+            cachedGroups.invalidateAll();
+            // the groups of the users are used to find the memberships of the users
+            membershipIndex.invalidateAllGenerations();
+        }
+
+        /**
+         * @see GitLab#invalidateAll()
+         */
+        public void invalidateAll() {
+            cachedUsers.invalidateAll();
+            cachedGroupMemberships.invalidateAll();
+            cachedGroups.invalidateAll();
+            missingUsers.invalidateAll();
+            missingGroups.invalidateAll();
+            // nothing loaded from a snapshot is left
+            loadedSnapshot = null;
+            // data derived from discarded users, e.g. admin statuses, may no longer be valid
+            membershipIndex.invalidateAllGenerations();
+        }
+
+        /**
+         * @see GitLab#createCacheSnapshot()
+         */
+        public CacheSnapshot createCacheSnapshot(long timestamp) {
+            expireLoadedSnapshot();
+            LoadedSnapshot loaded = loadedSnapshot;
+            if (loaded != null) {
+                // data still loaded from a snapshot mustn't outlive the snapshot it was loaded from
+                timestamp = Math.min(timestamp, loaded.timestamp);
+            }
+
+            GitLabGroupRegistry groups = cachedGroups.getIfPresent(0);
+            return new CacheSnapshot(timestamp, groups != null ? groups.asList() : null,
+                    new HashMap<Integer, GitLabGroupMembers>(cachedGroupMemberships.asMap()));
+        }
+
+        /**
+         * Loads groups and group members from a snapshot into the caches.
+         *
+         * @param snapshot the snapshot
+         * @param maxAge   the maximum age of the loaded data in milliseconds
+         * @param now      the current time in milliseconds since the epoch
+         * @see GitLab#loadCacheSnapshot(CacheSnapshot, long)
+         */
+        public void loadCacheSnapshot(CacheSnapshot snapshot, long maxAge, long now) {
+            long remaining = maxAge - (now - snapshot.getTimestamp());
+            if (remaining <= 0) {
+                // the data would already have expired
+                return;
+            }
+
+            GitLabGroupRegistry loadedGroups = null;
+            if (snapshot.getGroups() != null) {
+                GitLabGroupRegistry groups = new GitLabGroupRegistry(snapshot.getGroups());
+                // user ID for all users
+                if (cachedGroups.asMap().putIfAbsent(0, groups) == null) {
+                    loadedGroups = groups;
+                }
+            }
+
+            Map<Integer, GitLabGroupMembers> loadedMembers = new HashMap<Integer, GitLabGroupMembers>();
+            for (Map.Entry<Integer, GitLabGroupMembers> entry : snapshot.getGroupMembers().entrySet()) {
+                // only index members if they weren't already loaded from GitLab
+                if (cachedGroupMemberships.asMap().putIfAbsent(entry.getKey(), entry.getValue()) == null) {
+                    membershipIndex.putGroup(entry.getKey(), entry.getValue());
+                    loadedMembers.put(entry.getKey(), entry.getValue());
+                }
+            }
+
+            loadedSnapshot = new LoadedSnapshot(snapshot.getTimestamp(),
+                    ticker.read() + TimeUnit.MILLISECONDS.toNanos(remaining), loadedGroups, loadedMembers);
+        }
+
+        /**
+         * Discards the data loaded from a snapshot once it is older than the maximum age.
+         *
+         * The caches can only expire entries relative to when they were put in the cache, so the loaded entries are
+         * discarded here instead. Entries which have been replaced since they were loaded are kept.
+         */
+        private void expireLoadedSnapshot() {
+            LoadedSnapshot loaded = loadedSnapshot;
+            if (loaded == null || ticker.read() - loaded.expiresAt < 0) {
+                return;
+            }
+            loadedSnapshot = null;
+
+            if (loaded.groups != null) {
+                cachedGroups.asMap().remove(0, loaded.groups);
+            }
+            for (Map.Entry<Integer, GitLabGroupMembers> entry : loaded.groupMembers.entrySet()) {
+                // removes the members from the index as well
+                cachedGroupMemberships.asMap().remove(entry.getKey(), entry.getValue());
+            }
+        }
+
         /**
          * @see GitLab#getGroups()
          */
         public List<GitLabGroupInfo> getGroups() throws GitLabApiException {
+            expireLoadedSnapshot();
             try {
                 // user ID for all users
                 return cachedGroups.get(0).asList();
@@ -356,6 +806,7 @@ public class GitLab {
          * @see GitLab#getGroup(int)
          */
         public GitLabGroupInfo getGroup(int groupId) throws GitLabApiException {
+            expireLoadedSnapshot();
             try {
                 // get group by group ID or null if not found
                 return cachedGroups.get(0).getById(groupId);
@@ -374,6 +825,7 @@ public class GitLab {
          * @see GitLab#getGroupByPath(String)
          */
         public GitLabGroupInfo getGroupByPath(String path) throws GitLabApiException {
+            expireLoadedSnapshot();
             try {
                 // get group by path or null if not found
                 return cachedGroups.get(0).getByPath(path);
@@ -408,23 +860,63 @@ public class GitLab {
         /**
          * Cache loader for getting memberships of groups from the API.
          */
-        private class GroupMembershipsCacheLoader extends CacheLoader<Integer, Map<Integer, GitLabGroupMemberInfo>> {
+        private class GroupMembershipsCacheLoader extends CacheLoader<Integer, GitLabGroupMembers> {
             @Override
-            public Map<Integer, GitLabGroupMemberInfo> load(Integer groupId)
-                    throws Exception {
-                // get all members as a list
-                List<GitLabGroupMemberInfo> memberList = getApiClient().getGroupMembers(groupId);
-
-                // create and return map with userId -> member
-                Map<Integer, GitLabGroupMemberInfo> members = new HashMap<Integer,
-                        GitLabGroupMemberInfo>(memberList.size());
-                for (final GitLabGroupMemberInfo member : memberList) {
-                    members.put(member.getId(), member);
-                }
+            public GitLabGroupMembers load(Integer groupId) throws Exception {
+                // only keep user ID, access level and blocked state of the members
+                GitLabGroupMembers members = GitLabGroupMembers.fromMembers(getApiClient().getGroupMembers(groupId));
+
+                // index the members before the cache replaces any previous members
+                membershipIndex.putGroup(groupId, members);
                 return members;
             }
         }
 
+        /**
+         * The data loaded from a snapshot.
+         */
+        private static final class LoadedSnapshot {
+            /** The time the snapshot was created in milliseconds since the epoch. */
+            private final long timestamp;
+
+            /** The ticker value when the data expires. */
+            private final long expiresAt;
+
+            /** The loaded groups, or null if none were loaded. */
+            private final GitLabGroupRegistry groups;
+
+            /** The loaded members mapped by group ID. */
+            private final Map<Integer, GitLabGroupMembers> groupMembers;
+
+            /**
+             * Creates the data loaded from a snapshot.
+             *
+             * @param timestamp    the time the snapshot was created in milliseconds since the epoch
+             * @param expiresAt    the ticker value when the data expires
+             * @param groups       the loaded groups, or null if none were loaded
+             * @param groupMembers the loaded members mapped by group ID
+             */
+            private LoadedSnapshot(long timestamp, long expiresAt, GitLabGroupRegistry groups,
+                    Map<Integer, GitLabGroupMembers> groupMembers) {
+                this.timestamp = timestamp;
+                this.expiresAt = expiresAt;
+                this.groups = groups;
+                this.groupMembers = groupMembers;
+            }
+        }
+
+        /**
+         * Removal listener removing evicted group memberships from the membership index.
+         */
+        private class GroupMembershipsRemovalListener implements RemovalListener<Integer, GitLabGroupMembers> {
+            public void onRemoval(RemovalNotification<Integer, GitLabGroupMembers> notification) {
+                if (notification.getKey() != null && notification.getValue() != null) {
+                    // ignored if the members already have been replaced in the index
+                    membershipIndex.removeGroup(notification.getKey(), notification.getValue());
+                }
+            }
+        }
+
         /**
          * Cache loader for getting groups from the API.
          */
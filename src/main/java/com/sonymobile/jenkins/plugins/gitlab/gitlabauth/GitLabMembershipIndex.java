@@ -0,0 +1,230 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Andreas Alanko, Emil Nilsson, Sony Mobile Communications AB.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.sonymobile.jenkins.plugins.gitlab.gitlabauth;
+
+import com.sonymobile.gitlab.model.GitLabAccessLevel;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A reverse index of group memberships mapping users to the groups they are members of.
+ *
+ * The index mirrors the group memberships currently cached by {@link GitLab} and has to be updated whenever the
+ * members of a group are loaded or evicted. Blocked members are not indexed as they are not considered members
+ * of their groups.
+ *
+ * @author Emil Nilsson
+ */
+public class GitLabMembershipIndex {
+    /** The default maximum number of users with a generation of their own. */
+    private static final int DEFAULT_MAX_GENERATIONS = 10000;
+
+    /** The access levels of the users in their groups, mapped as user ID -> group ID -> access level. */
+    private final ConcurrentMap<Integer, ConcurrentMap<Integer, GitLabAccessLevel>> groupsByUser =
+            new ConcurrentHashMap<Integer, ConcurrentMap<Integer, GitLabAccessLevel>>();
+
+    /**
+     * The generation of the memberships of each user, changed whenever any of the memberships change.
+     *
+     * Users stay in the map after their memberships have been removed from the index, so the map is cleared and all
+     * users are given a new base generation once it reaches its maximum size.
+     */
+    private final ConcurrentMap<Integer, Long> generationsByUser = new ConcurrentHashMap<Integer, Long>();
+
+    /** The maximum number of users with a generation of their own. */
+    private final int maxGenerations;
+
+    /** The last generation assigned to a user, shared by all indices to never reuse a generation. */
+    private static final AtomicLong lastGeneration = new AtomicLong();
+
+    /** The generation of users which haven't been assigned a generation of their own. */
+    private volatile long baseGeneration = 0;
+
+    /** The members currently indexed for each group. */
+    private final Map<Integer, GitLabGroupMembers> indexedGroups = new HashMap<Integer, GitLabGroupMembers>();
+
+    /**
+     * Creates an empty index.
+     */
+    public GitLabMembershipIndex() {
+        this(DEFAULT_MAX_GENERATIONS);
+    }
+
+    /**
+     * Creates an empty index with a maximum number of users with a generation of their own.
+     *
+     * @param maxGenerations the maximum number of users with a generation of their own
+     */
+    /* package */ GitLabMembershipIndex(int maxGenerations) {
+        this.maxGenerations = maxGenerations;
+    }
+
+    /**
+     * Gets the groups a user is a member of.
+     *
+     * Only groups which members are currently indexed are included.
+     *
+     * @param userId the user ID
+     * @return an unmodifiable map from group IDs to the access levels of the user
+     */
+    public Map<Integer, GitLabAccessLevel> getGroupsForUser(int userId) {
+        Map<Integer, GitLabAccessLevel> groups = groupsByUser.get(userId);
+        return groups != null ? Collections.unmodifiableMap(groups) : Collections.<Integer, GitLabAccessLevel>emptyMap();
+    }
+
+    /**
+     * Gets the generation of the memberships of a user.
+     *
+     * The generation changes whenever a membership of the user is added, removed or changes access level, so any
+     * data derived from the memberships of a user can be reused as long as the generation stays the same.
+     *
+     * @param userId the user ID
+     * @return the generation
+     */
+    public long getGeneration(int userId) {
+        Long generation = generationsByUser.get(userId);
+        return generation != null ? generation : baseGeneration;
+    }
+
+    /**
+     * Assigns a new generation to all users, including users which memberships aren't indexed, e.g. when all cached
+     * data has been discarded.
+     */
+    public void invalidateAllGenerations() {
+        // the new base generation has never been used, so it's a new generation for every user falling back to it
+        baseGeneration = lastGeneration.incrementAndGet();
+        generationsByUser.clear();
+    }
+
+    /**
+     * Assigns a new generation to a user whose memberships may have changed without the index noticing, e.g. when
+     * the user has joined a group which members aren't indexed.
+     *
+     * @param userId the user ID
+     */
+    public void invalidateGeneration(int userId) {
+        nextGeneration(userId);
+    }
+
+    /**
+     * Indexes the members of a group, replacing any members previously indexed for the group.
+     *
+     * @param groupId the group ID
+     * @param members the members of the group
+     */
+    public synchronized void putGroup(int groupId, GitLabGroupMembers members) {
+        GitLabGroupMembers previousMembers = indexedGroups.put(groupId, members);
+
+        if (previousMembers != null) {
+            // remove users no longer being active members of the group
+            for (int i = 0; i < previousMembers.size(); i++) {
+                int userId = previousMembers.getUserIdAt(i);
+                if (!members.isActiveMember(userId)) {
+                    removeMembership(userId, groupId);
+                }
+            }
+        }
+
+        for (int i = 0; i < members.size(); i++) {
+            if (!members.isBlockedAt(i)) {
+                addMembership(members.getUserIdAt(i), groupId, members.getAccessLevelAt(i));
+            }
+        }
+    }
+
+    /**
+     * Removes the members of a group from the index.
+     *
+     * The members are only removed if they are the ones currently indexed for the group, which makes it safe to call
+     * when a replaced value is evicted from the cache.
+     *
+     * @param groupId the group ID
+     * @param members the members of the group
+     */
+    public synchronized void removeGroup(int groupId, GitLabGroupMembers members) {
+        if (indexedGroups.get(groupId) == members) {
+            indexedGroups.remove(groupId);
+
+            for (int i = 0; i < members.size(); i++) {
+                removeMembership(members.getUserIdAt(i), groupId);
+            }
+        }
+    }
+
+    /**
+     * Adds a membership for a user.
+     *
+     * @param userId      the user ID
+     * @param groupId     the group ID
+     * @param accessLevel the access level of the user in the group
+     */
+    private void addMembership(int userId, int groupId, GitLabAccessLevel accessLevel) {
+        ConcurrentMap<Integer, GitLabAccessLevel> groups = groupsByUser.get(userId);
+        if (groups == null) {
+            groups = new ConcurrentHashMap<Integer, GitLabAccessLevel>(4);
+            groupsByUser.put(userId, groups);
+        }
+        if (groups.put(groupId, accessLevel) != accessLevel) {
+            nextGeneration(userId);
+        }
+    }
+
+    /**
+     * Assigns a new generation to a user after a membership has changed.
+     *
+     * @param userId the user ID
+     */
+    private void nextGeneration(int userId) {
+        if (generationsByUser.size() >= maxGenerations && !generationsByUser.containsKey(userId)) {
+            // fall back to a new base generation for all users instead of growing any further
+            invalidateAllGenerations();
+        }
+        generationsByUser.put(userId, lastGeneration.incrementAndGet());
+    }
+
+    /**
+     * Removes a membership for a user.
+     *
+     * @param userId  the user ID
+     * @param groupId the group ID
+     */
+    private void removeMembership(int userId, int groupId) {
+        ConcurrentMap<Integer, GitLabAccessLevel> groups = groupsByUser.get(userId);
+        if (groups != null) {
+            if (groups.remove(groupId) != null) {
+                nextGeneration(userId);
+            }
+            if (groups.isEmpty()) {
+                groupsByUser.remove(userId);
+            }
+        }
+    }
+}
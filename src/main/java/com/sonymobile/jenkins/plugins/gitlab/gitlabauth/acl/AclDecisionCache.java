@@ -0,0 +1,205 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Andreas Alanko, Emil Nilsson, Sony Mobile Communications AB.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.sonymobile.jenkins.plugins.gitlab.gitlabauth.acl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.GitLab;
+import hudson.security.ACL;
+import hudson.security.Permission;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A cache of ACL decisions shared by all threads and all GitLab ACLs.
+ *
+ * Decisions are keyed by user ID, ACL and permission, with the ACL compared by identity. A cached decision is only
+ * used if it was made in the current epoch, the cached group memberships of the user haven't changed since and it is
+ * younger than the GitLab cache duration. The epoch is advanced when the authorization strategy or the authorization
+ * of a folder is reconfigured, which discards every decision at once.
+ *
+ * @author Emil Nilsson
+ */
+public final class AclDecisionCache {
+    /** The maximum number of cached decisions. */
+    private static final int MAXIMUM_SIZE = 50000;
+
+    /** The number of segments the cache is striped into for concurrent access. */
+    private static final int CONCURRENCY_LEVEL = 16;
+
+    /** The current epoch, decisions made in earlier epochs are never used. */
+    private static final AtomicLong epoch = new AtomicLong();
+
+    /** The cached decisions. */
+    private static final Cache<Key, Decision> decisions = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_SIZE)
+            .concurrencyLevel(CONCURRENCY_LEVEL)
+            .build();
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private AclDecisionCache() { }
+
+    /**
+     * Discards all cached decisions by advancing the epoch.
+     */
+    public static void invalidateAll() {
+        epoch.incrementAndGet();
+        decisions.invalidateAll();
+    }
+
+    /**
+     * Gets a cached decision.
+     *
+     * @param userId     the user ID
+     * @param acl        the ACL
+     * @param permission the permission
+     * @return the decision or null if not cached or no longer valid
+     */
+    static Boolean get(int userId, ACL acl, Permission permission) {
+        Decision decision = decisions.getIfPresent(new Key(userId, acl, permission));
+        if (decision != null && decision.epoch == epoch.get()
+                && decision.generation == GitLab.getMembershipGeneration(userId)
+                && System.nanoTime() - decision.decidedAt <= getMaxAgeNanos()) {
+            AclMetrics.recordDecisionCacheHit();
+            return decision.granted;
+        }
+        AclMetrics.recordDecisionCacheMiss();
+        return null;
+    }
+
+    /**
+     * Caches a decision.
+     *
+     * The epoch and membership generation must be read with {@link #getEpoch()} and
+     * {@link GitLab#getMembershipGeneration(int)} before making the decision, so a decision racing with an
+     * invalidation is never used.
+     *
+     * @param userId     the user ID
+     * @param acl        the ACL
+     * @param permission the permission
+     * @param granted    the decision
+     * @param epoch      the epoch when the decision was started
+     * @param generation the membership generation of the user when the decision was started
+     */
+    static void put(int userId, ACL acl, Permission permission, boolean granted, long epoch, long generation) {
+        decisions.put(new Key(userId, acl, permission), new Decision(granted, epoch, generation, System.nanoTime()));
+    }
+
+    /**
+     * Gets the current epoch.
+     *
+     * @return the epoch
+     */
+    static long getEpoch() {
+        return epoch.get();
+    }
+
+    /**
+     * Gets the maximum age of a cached decision.
+     *
+     * @return the maximum age in nanoseconds
+     */
+    private static long getMaxAgeNanos() {
+        return TimeUnit.MILLISECONDS.toNanos(GitLab.getCacheSettings().getExpiryDuration().toMilliseconds());
+    }
+
+    /**
+     * The key of a decision, comparing the ACL by identity.
+     */
+    private static final class Key {
+        /** The user ID. */
+        private final int userId;
+
+        /** The ACL. */
+        private final ACL acl;
+
+        /** The permission. */
+        private final Permission permission;
+
+        /**
+         * Creates a key.
+         *
+         * @param userId     the user ID
+         * @param acl        the ACL
+         * @param permission the permission
+         */
+        private Key(int userId, ACL acl, Permission permission) {
+            this.userId = userId;
+            this.acl = acl;
+            this.permission = permission;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof Key)) {
+                return false;
+            }
+            Key key = (Key)object;
+            return userId == key.userId && acl == key.acl && permission == key.permission;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = userId;
+            hash = 31 * hash + System.identityHashCode(acl);
+            return 31 * hash + System.identityHashCode(permission);
+        }
+    }
+
+    /**
+     * A cached decision.
+     */
+    private static final class Decision {
+        /** Whether the permission was granted. */
+        private final boolean granted;
+
+        /** The epoch the decision was made in. */
+        private final long epoch;
+
+        /** The membership generation of the user the decision was made with. */
+        private final long generation;
+
+        /** The time of the decision in nanoseconds. */
+        private final long decidedAt;
+
+        /**
+         * Creates a decision.
+         *
+         * @param granted    whether the permission was granted
+         * @param epoch      the epoch the decision was made in
+         * @param generation the membership generation of the user the decision was made with
+         * @param decidedAt  the time of the decision in nanoseconds
+         */
+        private Decision(boolean granted, long epoch, long generation, long decidedAt) {
+            this.granted = granted;
+            this.epoch = epoch;
+            this.generation = generation;
+            this.decidedAt = decidedAt;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Andreas Alanko, Emil Nilsson, Sony Mobile Communications AB.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.sonymobile.jenkins.plugins.gitlab.gitlabauth.acl;
+
+import hudson.security.ACL;
+import hudson.security.Permission;
+import org.acegisecurity.Authentication;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A memo of ACL decisions scoped to the current HTTP request.
+ *
+ * While a memo is active for the current thread each distinct decision of an ACL, an authentication and a permission
+ * is only evaluated once. The ACL and the authentication are compared by identity, so a changed ACL or a new
+ * authentication is always evaluated. Outside requests, e.g. on background threads, no memo is active and every
+ * decision is evaluated.
+ *
+ * @author Emil Nilsson
+ */
+public final class AclDecisionMemo {
+    /** The decisions for the current request or null if no request is being handled. */
+    private static final ThreadLocal<Map<Key, Boolean>> decisions = new ThreadLocal<Map<Key, Boolean>>();
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private AclDecisionMemo() { }
+
+    /**
+     * Activates a memo for the current thread.
+     *
+     * @return true if a memo was activated, false if one already was active
+     */
+    public static boolean begin() {
+        if (decisions.get() != null) {
+            return false;
+        }
+        decisions.set(new HashMap<Key, Boolean>());
+        return true;
+    }
+
+    /**
+     * Discards the memo for the current thread.
+     */
+    public static void end() {
+        decisions.remove();
+    }
+
+    /**
+     * Checks whether a memo is active for the current thread.
+     *
+     * @return true if a memo is active
+     */
+    public static boolean isActive() {
+        return decisions.get() != null;
+    }
+
+    /**
+     * Gets a memoized decision.
+     *
+     * @param acl        the ACL
+     * @param auth       the authentication
+     * @param permission the permission
+     * @return the decision or null if not memoized or no memo is active
+     */
+    public static Boolean get(ACL acl, Authentication auth, Permission permission) {
+        Map<Key, Boolean> memo = decisions.get();
+        return memo != null ? memo.get(new Key(acl, auth, permission)) : null;
+    }
+
+    /**
+     * Memoizes a decision if a memo is active.
+     *
+     * @param acl        the ACL
+     * @param auth       the authentication
+     * @param permission the permission
+     * @param decision   the decision
+     */
+    public static void put(ACL acl, Authentication auth, Permission permission, boolean decision) {
+        Map<Key, Boolean> memo = decisions.get();
+        if (memo != null) {
+            memo.put(new Key(acl, auth, permission), decision);
+        }
+    }
+
+    /**
+     * The key of a decision, comparing the ACL and authentication by identity.
+     */
+    private static final class Key {
+        /** The ACL. */
+        private final ACL acl;
+
+        /** The authentication. */
+        private final Authentication auth;
+
+        /** The permission. */
+        private final Permission permission;
+
+        /**
+         * Creates a key.
+         *
+         * @param acl        the ACL
+         * @param auth       the authentication
+         * @param permission the permission
+         */
+        private Key(ACL acl, Authentication auth, Permission permission) {
+            this.acl = acl;
+            this.auth = auth;
+            this.permission = permission;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof Key)) {
+                return false;
+            }
+            Key key = (Key)object;
+            return acl == key.acl && auth == key.auth && permission == key.permission;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = System.identityHashCode(acl);
+            hash = 31 * hash + System.identityHashCode(auth);
+            return 31 * hash + System.identityHashCode(permission);
+        }
+    }
+}
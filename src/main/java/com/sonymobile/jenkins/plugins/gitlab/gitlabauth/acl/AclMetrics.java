@@ -0,0 +1,227 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Andreas Alanko, Emil Nilsson, Sony Mobile Communications AB.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.sonymobile.jenkins.plugins.gitlab.gitlabauth.acl;
+
+import net.sf.json.JSONObject;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters for the evaluation of permissions in the GitLab ACLs.
+ *
+ * Shows how often decisions are made from the permission tables alone, how often they are found in the shared
+ * decision cache and how many lookups of remote facts, like admin status and group memberships, are avoided because
+ * no identity of that kind grants anything.
+ *
+ * @author Emil Nilsson
+ */
+public final class AclMetrics {
+    /** The number of decisions made from the permission tables alone. */
+    private static final AtomicLong localDecisions = new AtomicLong();
+
+    /** The number of decisions using the effective permissions of the user. */
+    private static final AtomicLong remoteDecisions = new AtomicLong();
+
+    /** The number of decisions made from only the identities granting the permission. */
+    private static final AtomicLong targetedDecisions = new AtomicLong();
+
+    /** The number of decisions found in the shared decision cache. */
+    private static final AtomicLong decisionCacheHits = new AtomicLong();
+
+    /** The number of decisions missing in the shared decision cache. */
+    private static final AtomicLong decisionCacheMisses = new AtomicLong();
+
+    /** The number of admin status lookups skipped. */
+    private static final AtomicLong skippedAdminLookups = new AtomicLong();
+
+    /** The number of group membership lookups skipped. */
+    private static final AtomicLong skippedGroupLookups = new AtomicLong();
+
+    /** The number of group access level lookups skipped. */
+    private static final AtomicLong skippedAccessLevelLookups = new AtomicLong();
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private AclMetrics() { }
+
+    /**
+     * Records a decision made from the permission tables alone.
+     */
+    static void recordLocalDecision() {
+        localDecisions.incrementAndGet();
+    }
+
+    /**
+     * Records a decision using the effective permissions of the user.
+     */
+    static void recordRemoteDecision() {
+        remoteDecisions.incrementAndGet();
+    }
+
+    /**
+     * Records a decision made from only the identities granting the permission, as the effective permissions of the
+     * user weren't computed yet.
+     */
+    static void recordTargetedDecision() {
+        targetedDecisions.incrementAndGet();
+    }
+
+    /**
+     * Records a decision found in the shared decision cache.
+     */
+    static void recordDecisionCacheHit() {
+        decisionCacheHits.incrementAndGet();
+    }
+
+    /**
+     * Records a decision missing in the shared decision cache.
+     */
+    static void recordDecisionCacheMiss() {
+        decisionCacheMisses.incrementAndGet();
+    }
+
+    /**
+     * Records a skipped admin status lookup.
+     */
+    static void recordSkippedAdminLookup() {
+        skippedAdminLookups.incrementAndGet();
+    }
+
+    /**
+     * Records a skipped group membership lookup.
+     */
+    static void recordSkippedGroupLookup() {
+        skippedGroupLookups.incrementAndGet();
+    }
+
+    /**
+     * Records a skipped group access level lookup.
+     */
+    static void recordSkippedAccessLevelLookup() {
+        skippedAccessLevelLookups.incrementAndGet();
+    }
+
+    /**
+     * Gets the number of decisions made from the permission tables alone.
+     *
+     * @return the number of decisions
+     */
+    public static long getLocalDecisions() {
+        return localDecisions.get();
+    }
+
+    /**
+     * Gets the number of decisions using the effective permissions of the user.
+     *
+     * @return the number of decisions
+     */
+    public static long getRemoteDecisions() {
+        return remoteDecisions.get();
+    }
+
+    /**
+     * Gets the number of decisions made from only the identities granting the permission.
+     *
+     * @return the number of decisions
+     */
+    public static long getTargetedDecisions() {
+        return targetedDecisions.get();
+    }
+
+    /**
+     * Gets the number of decisions found in the shared decision cache.
+     *
+     * @return the number of hits
+     */
+    public static long getDecisionCacheHits() {
+        return decisionCacheHits.get();
+    }
+
+    /**
+     * Gets the number of decisions missing in the shared decision cache.
+     *
+     * @return the number of misses
+     */
+    public static long getDecisionCacheMisses() {
+        return decisionCacheMisses.get();
+    }
+
+    /**
+     * Gets the ratio of decisions found in the shared decision cache.
+     *
+     * @return the hit rate, 1.0 if no decisions have been requested
+     */
+    public static double getDecisionCacheHitRate() {
+        long hits = getDecisionCacheHits();
+        long requests = hits + getDecisionCacheMisses();
+        return requests == 0 ? 1.0 : (double)hits / requests;
+    }
+
+    /**
+     * Gets the number of skipped admin status lookups.
+     *
+     * @return the number of lookups
+     */
+    public static long getSkippedAdminLookups() {
+        return skippedAdminLookups.get();
+    }
+
+    /**
+     * Gets the number of skipped group membership lookups.
+     *
+     * @return the number of lookups
+     */
+    public static long getSkippedGroupLookups() {
+        return skippedGroupLookups.get();
+    }
+
+    /**
+     * Gets the number of skipped group access level lookups.
+     *
+     * @return the number of lookups
+     */
+    public static long getSkippedAccessLevelLookups() {
+        return skippedAccessLevelLookups.get();
+    }
+
+    /**
+     * Converts the counters to JSON.
+     *
+     * @return a JSON object
+     */
+    public static JSONObject toJSON() {
+        return new JSONObject()
+                .element("localDecisions", getLocalDecisions())
+                .element("remoteDecisions", getRemoteDecisions())
+                .element("targetedDecisions", getTargetedDecisions())
+                .element("decisionCacheHits", getDecisionCacheHits())
+                .element("decisionCacheMisses", getDecisionCacheMisses())
+                .element("decisionCacheHitRate", getDecisionCacheHitRate())
+                .element("skippedAdminLookups", getSkippedAdminLookups())
+                .element("skippedGroupLookups", getSkippedGroupLookups())
+                .element("skippedAccessLevelLookups", getSkippedAccessLevelLookups());
+    }
+}
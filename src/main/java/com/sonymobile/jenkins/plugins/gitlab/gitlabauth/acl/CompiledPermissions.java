@@ -0,0 +1,289 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Andreas Alanko, Emil Nilsson, Sony Mobile Communications AB.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.sonymobile.jenkins.plugins.gitlab.gitlabauth.acl;
+
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.acl.GitLabPermissionIdentity.IdentityType;
+import hudson.security.Permission;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A frozen form of granted permissions compiled into one bitset per identity.
+ *
+ * Each bit corresponds to a permission index from {@link PermissionIndex}. A bit is set if the permission is granted
+ * directly or implied by a granted permission, so checking a permission is a single bit test. Permissions registered
+ * after the bitsets were compiled are resolved by testing the permissions implying them.
+ *
+ * An inverted index from each permission to the identities granting it, split by identity type, is built at the same
+ * time so an evaluation only has to consider identities which could grant the permission.
+ *
+ * @author Emil Nilsson
+ */
+final class CompiledPermissions {
+    /** The number of bits in each word of the bitsets. */
+    private static final int WORD_SIZE = 64;
+
+    /** The permission bitsets of the identities. */
+    private final Map<GitLabPermissionIdentity, long[]> bitsets;
+
+    /** The combined permission bitsets of all identities of each type. */
+    private final Map<IdentityType, long[]> bitsetsByType;
+
+    /** The identities granting each permission by permission index, split by identity type. */
+    private final List<Map<IdentityType, List<GitLabPermissionIdentity>>> grantingIdentities;
+
+    /** The number of permissions indexed when the bitsets were compiled. */
+    private final int indexedCount;
+
+    /**
+     * Creates compiled permissions.
+     *
+     * @param bitsets      the permission bitsets of the identities
+     * @param indexedCount the number of permissions indexed when the bitsets were compiled
+     */
+    private CompiledPermissions(Map<GitLabPermissionIdentity, long[]> bitsets, int indexedCount) {
+        this.bitsets = bitsets;
+        this.indexedCount = indexedCount;
+
+        bitsetsByType = new EnumMap<IdentityType, long[]>(IdentityType.class);
+        for (Map.Entry<GitLabPermissionIdentity, long[]> entry : bitsets.entrySet()) {
+            long[] combined = bitsetsByType.get(entry.getKey().type);
+            if (combined == null) {
+                combined = new long[entry.getValue().length];
+                bitsetsByType.put(entry.getKey().type, combined);
+            }
+            for (int i = 0; i < combined.length; i++) {
+                combined[i] |= entry.getValue()[i];
+            }
+        }
+
+        grantingIdentities = new ArrayList<Map<IdentityType, List<GitLabPermissionIdentity>>>(indexedCount);
+        for (int index = 0; index < indexedCount; index++) {
+            Map<IdentityType, List<GitLabPermissionIdentity>> byType = null;
+            for (Map.Entry<GitLabPermissionIdentity, long[]> entry : bitsets.entrySet()) {
+                if (isSet(entry.getValue(), index)) {
+                    if (byType == null) {
+                        byType = new EnumMap<IdentityType, List<GitLabPermissionIdentity>>(IdentityType.class);
+                    }
+                    List<GitLabPermissionIdentity> identities = byType.get(entry.getKey().type);
+                    if (identities == null) {
+                        identities = new ArrayList<GitLabPermissionIdentity>();
+                        byType.put(entry.getKey().type, identities);
+                    }
+                    identities.add(entry.getKey());
+                }
+            }
+            grantingIdentities.add(byType);
+        }
+    }
+
+    /**
+     * Compiles granted permissions.
+     *
+     * @param grantedPermissions the granted permissions of the identities
+     * @return the compiled permissions
+     */
+    static CompiledPermissions compile(Map<GitLabPermissionIdentity, List<Permission>> grantedPermissions) {
+        // make sure granted permissions not registered in Jenkins have indices as well
+        for (List<Permission> permissions : grantedPermissions.values()) {
+            for (Permission permission : permissions) {
+                PermissionIndex.indexOf(permission);
+            }
+        }
+        Permission[] indexedPermissions = PermissionIndex.indexAll();
+
+        Map<GitLabPermissionIdentity, long[]> bitsets =
+                new HashMap<GitLabPermissionIdentity, long[]>(grantedPermissions.size() * 2);
+
+        for (Map.Entry<GitLabPermissionIdentity, List<Permission>> entry : grantedPermissions.entrySet()) {
+            Set<Permission> granted = new HashSet<Permission>(entry.getValue());
+            long[] bitset = new long[(indexedPermissions.length + WORD_SIZE - 1) / WORD_SIZE];
+
+            for (int i = 0; i < indexedPermissions.length; i++) {
+                if (isImplied(indexedPermissions[i], granted)) {
+                    bitset[i / WORD_SIZE] |= 1L << (i % WORD_SIZE);
+                }
+            }
+            bitsets.put(entry.getKey(), bitset);
+        }
+
+        return new CompiledPermissions(bitsets, indexedPermissions.length);
+    }
+
+    /**
+     * Checks if an identity has a permission, directly or implied by another permission.
+     *
+     * @param identity   the identity
+     * @param permission the permission
+     * @return true if the permission is granted
+     */
+    boolean hasPermission(GitLabPermissionIdentity identity, Permission permission) {
+        long[] bitset = bitsets.get(identity);
+        return bitset != null && hasPermission(bitset, permission);
+    }
+
+    /**
+     * Checks if any identity of a type has a permission, directly or implied by another permission.
+     *
+     * @param type       the identity type
+     * @param permission the permission
+     * @return true if the permission is granted to an identity of the type
+     */
+    boolean hasPermission(IdentityType type, Permission permission) {
+        long[] bitset = bitsetsByType.get(type);
+        return bitset != null && hasPermission(bitset, permission);
+    }
+
+    /**
+     * Gets the identities of a type granting a permission, directly or implied by another permission.
+     *
+     * @param type       the identity type
+     * @param permission the permission
+     * @return an unmodifiable list of identities, empty if no identity of the type grants the permission
+     */
+    List<GitLabPermissionIdentity> getGrantingIdentities(IdentityType type, Permission permission) {
+        // permissions registered after compiling are granted through the permissions implying them
+        for (Permission current = permission; current != null; current = current.impliedBy) {
+            int index = PermissionIndex.indexOf(current);
+            if (index < indexedCount) {
+                Map<IdentityType, List<GitLabPermissionIdentity>> byType = grantingIdentities.get(index);
+                List<GitLabPermissionIdentity> identities = byType != null ? byType.get(type) : null;
+                return identities != null ? Collections.unmodifiableList(identities)
+                        : Collections.<GitLabPermissionIdentity>emptyList();
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Checks if an identity has been granted any permissions.
+     *
+     * @param identity the identity
+     * @return true if any permission is granted
+     */
+    boolean hasAnyPermission(GitLabPermissionIdentity identity) {
+        return !isEmpty(bitsets.get(identity));
+    }
+
+    /**
+     * Checks if any identity of a type has been granted any permissions.
+     *
+     * @param type the identity type
+     * @return true if any permission is granted
+     */
+    boolean hasAnyPermission(IdentityType type) {
+        return !isEmpty(bitsetsByType.get(type));
+    }
+
+    /**
+     * Checks if a bit is set in a bitset.
+     *
+     * @param bitset the bitset
+     * @param index  the index of the bit
+     * @return true if the bit is set
+     */
+    private static boolean isSet(long[] bitset, int index) {
+        return (bitset[index / WORD_SIZE] & (1L << (index % WORD_SIZE))) != 0;
+    }
+
+    /**
+     * Checks if a bitset is missing or has no bits set.
+     *
+     * @param bitset the bitset
+     * @return true if no bits are set
+     */
+    private static boolean isEmpty(long[] bitset) {
+        if (bitset != null) {
+            for (long word : bitset) {
+                if (word != 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if a permission is set in a bitset compiled by this object, directly or implied by another permission.
+     *
+     * @param bitset     the bitset
+     * @param permission the permission
+     * @return true if the permission is granted
+     */
+    boolean hasPermission(long[] bitset, Permission permission) {
+        // walk the implications only for permissions registered after compiling
+        for (Permission current = permission; current != null; current = current.impliedBy) {
+            int index = PermissionIndex.indexOf(current);
+            if (index < indexedCount) {
+                return isSet(bitset, index);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Creates a bitset with the permissions of all of the given identities.
+     *
+     * @param identities the identities
+     * @return the combined bitset
+     */
+    long[] combine(Iterable<GitLabPermissionIdentity> identities) {
+        long[] combined = new long[(indexedCount + WORD_SIZE - 1) / WORD_SIZE];
+        for (GitLabPermissionIdentity identity : identities) {
+            long[] bitset = bitsets.get(identity);
+            if (bitset != null) {
+                for (int i = 0; i < combined.length; i++) {
+                    combined[i] |= bitset[i];
+                }
+            }
+        }
+        return combined;
+    }
+
+    /**
+     * Checks if a permission is granted directly or implied by any of the granted permissions.
+     *
+     * @param permission the permission
+     * @param granted    the granted permissions
+     * @return true if the permission is implied
+     */
+    private static boolean isImplied(Permission permission, Collection<Permission> granted) {
+        for (Permission current = permission; current != null; current = current.impliedBy) {
+            if (granted.contains(current)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Andreas Alanko, Emil Nilsson, Sony Mobile Communications AB.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.sonymobile.jenkins.plugins.gitlab.gitlabauth.acl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.GitLab;
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.security.GitLabUserDetails;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A cache of the effective permissions of users in an ACL.
+ *
+ * The effective permissions of a user are the permissions of all identities applying to the user combined into one
+ * bitset, so checking a permission is a single bit test. The permissions are computed in the background, both the first
+ * time and again if the permissions of the ACL or the cached group memberships of the user change, and are refreshed
+ * once they are older than the cache duration to pick up changes not yet seen in the caches, like admin status.
+ *
+ * @author Emil Nilsson
+ */
+final class EffectivePermissionCache {
+    /** The maximum number of users cached for each ACL. */
+    private static final int MAXIMUM_SIZE = 1000;
+
+    /** The minutes before the permissions of an inactive user are discarded. */
+    private static final int EXPIRE_AFTER_ACCESS_MINUTES = 60;
+
+    /** The maximum number of pending background refreshes. */
+    private static final int MAX_PENDING_REFRESHES = 256;
+
+    /** The executor shared by all background refreshes. */
+    private static final ExecutorService sharedExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<Runnable>(MAX_PENDING_REFRESHES),
+            new ThreadFactoryBuilder().setNameFormat("GitLab permission refresh %d").setDaemon(true).build());
+
+    /** The ACL the permissions are computed for. */
+    private final GitLabAbstractACL acl;
+
+    /** The executor computing the permissions in the background. */
+    private final Executor executor;
+
+    /** The effective permissions mapped by user ID. */
+    private final Cache<Integer, Entry> entries = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_SIZE)
+            .expireAfterAccess(EXPIRE_AFTER_ACCESS_MINUTES, TimeUnit.MINUTES)
+            .build();
+
+    /** The IDs of the users which permissions are being computed. */
+    private final ConcurrentMap<Integer, Boolean> pending = new ConcurrentHashMap<Integer, Boolean>();
+
+    /**
+     * Creates a cache for an ACL.
+     *
+     * @param acl the ACL
+     */
+    EffectivePermissionCache(GitLabAbstractACL acl) {
+        this(acl, sharedExecutor);
+    }
+
+    /**
+     * Creates a cache for an ACL computing the permissions with a specific executor.
+     *
+     * @param acl      the ACL
+     * @param executor the executor
+     */
+    EffectivePermissionCache(GitLabAbstractACL acl, Executor executor) {
+        this.acl = acl;
+        this.executor = executor;
+    }
+
+    /**
+     * Gets the effective permissions of a user in the ACL if they are computed and up to date.
+     *
+     * Missing or outdated permissions are computed in the background, so the caller can make a decision from only
+     * the identities granting a permission in the meantime. Permissions older than the cache duration are still
+     * returned while they are refreshed in the background.
+     *
+     * @param user     the user
+     * @param compiled the current permissions of the ACL
+     * @return the effective permissions as a bitset of the compiled permissions, or null if not yet computed
+     */
+    long[] getPermissions(GitLabUserDetails user, CompiledPermissions compiled) {
+        long generation = GitLab.getMembershipGeneration(user.getId());
+        Entry entry = entries.getIfPresent(user.getId());
+
+        if (entry == null || entry.compiled != compiled || entry.generation != generation) {
+            scheduleCompute(user, entry);
+            return null;
+        }
+        if (System.nanoTime() - entry.computedAt > getRefreshIntervalNanos()) {
+            scheduleCompute(user, entry);
+        }
+        return entry.bitset;
+    }
+
+    /**
+     * Discards the effective permissions of all users.
+     */
+    void invalidateAll() {
+        entries.invalidateAll();
+    }
+
+    /**
+     * Computes the effective permissions of a user in the background unless already being computed.
+     *
+     * @param user     the user
+     * @param previous the permissions to replace, or null if there are none
+     */
+    private void scheduleCompute(final GitLabUserDetails user, final Entry previous) {
+        final Integer userId = user.getId();
+        if (pending.putIfAbsent(userId, Boolean.TRUE) != null) {
+            return;
+        }
+        try {
+            executor.execute(new Runnable() {
+                public void run() {
+                    try {
+                        CompiledPermissions current = acl.getGrantedPermissions().getCompiledPermissions();
+                        Entry computed = compute(user, current, GitLab.getMembershipGeneration(userId));
+                        if (computed == null) {
+                            // targeted decisions are made until the permissions can be computed
+                            return;
+                        }
+                        // don't replace permissions computed or discarded in the meantime
+                        if (previous == null) {
+                            entries.asMap().putIfAbsent(userId, computed);
+                        } else {
+                            entries.asMap().replace(userId, previous, computed);
+                        }
+                    } finally {
+                        pending.remove(userId);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // try again on the next check
+            pending.remove(userId);
+        }
+    }
+
+    /**
+     * Computes the effective permissions of a user.
+     *
+     * @param user       the user
+     * @param compiled   the permissions of the ACL
+     * @param generation the generation of the memberships of the user before computing
+     * @return the effective permissions, or null if a fact couldn't be looked up
+     */
+    private Entry compute(GitLabUserDetails user, CompiledPermissions compiled, long generation) {
+        UserFacts facts = new UserFacts(user, acl);
+        long[] bitset = compiled.combine(acl.getIdentities(facts));
+        if (facts.getFailedLookupCount() > 0) {
+            // the permissions would lack the identities which couldn't be looked up
+            return null;
+        }
+        return new Entry(bitset, compiled, generation, System.nanoTime());
+    }
+
+    /**
+     * Gets the interval between refreshes of the effective permissions.
+     *
+     * @return the interval in nanoseconds
+     */
+    private static long getRefreshIntervalNanos() {
+        return TimeUnit.MILLISECONDS.toNanos(GitLab.getCacheSettings().getExpiryDuration().toMilliseconds());
+    }
+
+    /**
+     * The effective permissions of a user.
+     */
+    private static final class Entry {
+        /** The combined permissions. */
+        private final long[] bitset;
+
+        /** The permissions of the ACL the bitset was computed from. */
+        private final CompiledPermissions compiled;
+
+        /** The generation of the memberships of the user. */
+        private final long generation;
+
+        /** The time the permissions were computed in nanoseconds. */
+        private final long computedAt;
+
+        /**
+         * Creates effective permissions.
+         *
+         * @param bitset     the combined permissions
+         * @param compiled   the permissions of the ACL the bitset was computed from
+         * @param generation the generation of the memberships of the user
+         * @param computedAt the time the permissions were computed in nanoseconds
+         */
+        private Entry(long[] bitset, CompiledPermissions compiled, long generation, long computedAt) {
+            this.bitset = bitset;
+            this.compiled = compiled;
+            this.generation = generation;
+            this.computedAt = computedAt;
+        }
+    }
+}
@@ -25,6 +25,7 @@
 
 package com.sonymobile.jenkins.plugins.gitlab.gitlabauth.acl;
 
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.acl.GitLabPermissionIdentity.IdentityType;
 import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.security.GitLabUserDetails;
 import hudson.security.ACL;
 import hudson.security.Permission;
@@ -32,11 +33,18 @@ import hudson.security.PermissionGroup;
 import org.acegisecurity.Authentication;
 
 import com.sonymobile.gitlab.exceptions.GitLabApiException;
-import com.sonymobile.gitlab.model.GitLabGroupMemberInfo;
+import com.sonymobile.gitlab.model.GitLabAccessLevel;
+import com.sonymobile.gitlab.model.GitLabGroupInfo;
 import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.GitLab;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Abstract ACL class for other GitLab ACLs to extend.
@@ -47,6 +55,9 @@ public abstract class GitLabAbstractACL extends ACL {
     /** Contains all identities and their respective granted permissions. */
     private final GitLabGrantedPermissions grantedPermissions;
 
+    /** The effective permissions of users, created when first needed. */
+    private transient volatile EffectivePermissionCache effectivePermissions;
+
     /**
      * Creates an ACL based on the given map of granted permissions.
      * 
@@ -88,6 +99,125 @@ public abstract class GitLabAbstractACL extends ACL {
      */
     protected abstract boolean isAdmin(GitLabUserDetails user);
 
+    /**
+     * Checks if the given user has admin access on the Jenkins server, failing if GitLab couldn't be reached.
+     *
+     * @param user the user
+     * @return true is the user has admin access else false
+     * @throws GitLabApiException if the connection against GitLab failed
+     */
+    boolean lookUpAdmin(GitLabUserDetails user) throws GitLabApiException {
+        return isAdmin(user);
+    }
+
+    /**
+     * Evaluates if the given principal has permission to use the permission.
+     *
+     * @param auth       the authentication object
+     * @param permission the permission
+     * @return true if permission is granted
+     */
+    protected abstract boolean isPermissionGranted(Authentication auth, Permission permission);
+
+    /**
+     * Checks if the given principal has permission to use the permission.
+     *
+     * The decision is only evaluated once per HTTP request for each authentication and permission, and decisions
+     * for GitLab users are shared between requests through {@link AclDecisionCache}.
+     *
+     * @param auth       the authentication object
+     * @param permission the permission
+     * @return true if permission is granted
+     */
+    @Override
+    public final boolean hasPermission(Authentication auth, Permission permission) {
+        return hasPermission(auth, permission, null);
+    }
+
+    /**
+     * Checks if the given principal has permission to use the permission, using facts about the user shared with
+     * the evaluation of other ACLs.
+     *
+     * @param auth       the authentication object
+     * @param permission the permission
+     * @param facts      the facts of the user, or null to gather them for this evaluation only
+     * @return true if permission is granted
+     */
+    final boolean hasPermission(Authentication auth, Permission permission, UserFacts facts) {
+        Boolean decision = AclDecisionMemo.get(this, auth, permission);
+        if (decision != null) {
+            return decision;
+        }
+        if (!isLoggedIn(auth)) {
+            // only decisions for GitLab users are cached
+            decision = isPermissionGranted(auth, permission);
+            AclDecisionMemo.put(this, auth, permission, decision);
+            return decision;
+        }
+
+        if (facts == null) {
+            facts = createUserFacts((GitLabUserDetails)auth.getPrincipal());
+        }
+        int failedLookups = facts.getFailedLookupCount();
+        decision = getCachedDecision(auth, permission, facts);
+        if (facts.getFailedLookupCount() == failedLookups) {
+            AclDecisionMemo.put(this, auth, permission, decision);
+        }
+        return decision;
+    }
+
+    /**
+     * Gets a decision for a logged in user from the shared decision cache, evaluating and caching it if missing.
+     *
+     * Decisions made while a fact couldn't be looked up aren't cached, so users aren't locked out by a short GitLab
+     * outage once GitLab can be reached again.
+     *
+     * @param auth       the authentication object of a logged in user
+     * @param permission the permission
+     * @param facts      the facts of the user
+     * @return true if permission is granted
+     */
+    private boolean getCachedDecision(Authentication auth, Permission permission, UserFacts facts) {
+        int userId = facts.getUser().getId();
+        Boolean decision = AclDecisionCache.get(userId, this, permission);
+        if (decision == null) {
+            // read before evaluating so a concurrent invalidation discards the decision
+            long epoch = AclDecisionCache.getEpoch();
+            long generation = GitLab.getMembershipGeneration(userId);
+            int failedLookups = facts.getFailedLookupCount();
+            decision = isPermissionGranted(auth, permission, facts);
+            if (facts.getFailedLookupCount() == failedLookups) {
+                AclDecisionCache.put(userId, this, permission, decision, epoch, generation);
+            }
+        }
+        return decision;
+    }
+
+    /**
+     * Creates the facts of a user for the evaluation of a single decision.
+     *
+     * @param user the user
+     * @return the facts
+     */
+    UserFacts createUserFacts(GitLabUserDetails user) {
+        return new UserFacts(user, this);
+    }
+
+    /**
+     * Evaluates if the given logged in user has permission to use the permission using facts shared with the
+     * evaluation of other ACLs.
+     *
+     * The facts are gathered for the global ACL, so ACLs depending on other facts should override this method.
+     *
+     * @param auth       the authentication object of a logged in user
+     * @param permission the permission
+     * @param facts      the facts of the user
+     * @return true if permission is granted
+     */
+    boolean isPermissionGranted(Authentication auth, Permission permission, UserFacts facts) {
+        return isPermissionGranted(auth, permission);
+    }
+
     /**
      * Sets the default permission for the ACL.
      */
@@ -120,67 +250,152 @@ public abstract class GitLabAbstractACL extends ACL {
     }
 
     /**
-     * Checks if the permission is granted for the identity type Jenkins.
-     * Excluding access level for anonymous.
-     * 
-     * @param user       the user
+     * Checks if the given identity has the given permission, directly or implied by another permission.
+     *
+     * @param identity   the identity
      * @param permission the permission
      * @return true if permission is granted
      */
-    private boolean isPermissionSetJenkins(GitLabUserDetails user, Permission permission) {
-        if (isAdmin(user)) {
-            if (isPermissionSet(GitLabPermissionIdentity.JENKINS_ADMIN, permission)) {
-                return true;
+    protected boolean isGranted(GitLabPermissionIdentity identity, Permission permission) {
+        return grantedPermissions.hasPermission(identity, permission);
+    }
+
+    /**
+     * Gets the identities applying to a user in this ACL.
+     *
+     * @param facts the facts of the user
+     * @return the identities
+     */
+    List<GitLabPermissionIdentity> getIdentities(UserFacts facts) {
+        List<GitLabPermissionIdentity> identities = new ArrayList<GitLabPermissionIdentity>();
+
+        // anonymous permissions apply to logged in users as well
+        identities.add(GitLabPermissionIdentity.JENKINS_ANONYMOUS);
+        identities.add(GitLabPermissionIdentity.JENKINS_LOGGED_IN);
+        identities.add(GitLabPermissionIdentity.user(facts.getUser().getUsername()));
+
+        // skip remote lookups for kinds of identities without any granted permissions
+        CompiledPermissions compiled = grantedPermissions.getCompiledPermissions();
+        if (!compiled.hasAnyPermission(GitLabPermissionIdentity.JENKINS_ADMIN)) {
+            AclMetrics.recordSkippedAdminLookup();
+        } else if (facts.isAdmin()) {
+            identities.add(GitLabPermissionIdentity.JENKINS_ADMIN);
+        }
+        if (!compiled.hasAnyPermission(IdentityType.GROUP)) {
+            AclMetrics.recordSkippedGroupLookup();
+        } else {
+            addGroupIdentities(facts, identities);
+        }
+        GitLabPermissionIdentity accessLevel = getAccessLevelIdentity(facts);
+        if (accessLevel != null) {
+            identities.add(accessLevel);
+        }
+
+        return identities;
+    }
+
+    /**
+     * Gets the GitLab access level identity of a user in this ACL.
+     *
+     * @param facts the facts of the user
+     * @return the access level identity, or null if access levels don't apply to the ACL
+     */
+    GitLabPermissionIdentity getAccessLevelIdentity(UserFacts facts) {
+        return null;
+    }
+
+    /**
+     * Adds the group identities of this ACL the user is an active member of.
+     *
+     * @param facts      the facts of the user
+     * @param identities the identities to add to
+     */
+    private void addGroupIdentities(UserFacts facts, List<GitLabPermissionIdentity> identities) {
+        Map<String, GitLabPermissionIdentity> groupsByPath = new HashMap<String, GitLabPermissionIdentity>();
+        for (GitLabPermissionIdentity group : grantedPermissions.getGroupPermissionIdentities()) {
+            groupsByPath.put(group.id, group);
+        }
+
+        for (String path : facts.getActiveGroupPaths(groupsByPath.keySet())) {
+            identities.add(groupsByPath.get(path));
+        }
+    }
+
+    /**
+     * Gets the groups among a set of group paths a user is an active member of.
+     *
+     * The groups of the user are fetched once and intersected with the paths, so only the members of groups the user
+     * can see are loaded, instead of the members of every group.
+     *
+     * @param userId the user id
+     * @param paths  the group paths
+     * @return the paths of the groups the user is an active member of
+     * @throws GitLabApiException if the connection against GitLab failed
+     */
+    protected static Set<String> getActiveGroupPaths(int userId, Set<String> paths) throws GitLabApiException {
+        if (paths.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        // the groups visible to the user include all groups the user is a member of
+        Map<Integer, String> candidates = new HashMap<Integer, String>();
+        for (GitLabGroupInfo groupInfo : GitLab.getGroupsAsUser(userId)) {
+            if (paths.contains(groupInfo.getPath())) {
+                candidates.put(groupInfo.getId(), groupInfo.getPath());
             }
         }
-        
-        if (isPermissionSet(GitLabPermissionIdentity.JENKINS_LOGGED_IN, permission)) {
-            return true;
+        if (candidates.isEmpty()) {
+            return Collections.emptySet();
         }
-        return false;
+
+        // a single lookup for all candidate groups once their members are cached
+        Set<String> activeGroups = new HashSet<String>();
+        Map<Integer, GitLabAccessLevel> memberships = GitLab.getGroupMemberships(userId, candidates.keySet());
+        for (Map.Entry<Integer, String> entry : candidates.entrySet()) {
+            if (memberships.containsKey(entry.getKey())) {
+                activeGroups.add(entry.getValue());
+            }
+        }
+        return activeGroups;
     }
-    
+
     /**
-     * Checks if the permission is granted for the user with the given username 
-     * within the identity type User.
-     * 
-     * @param username   the username
-     * @param permission the permission
-     * @return true if permission is granted
+     * Discards the cached effective permissions and decisions, e.g. after identities have changed.
      */
-    private boolean isPermissionSetUser(String username, Permission permission) {
-        return isPermissionSet(GitLabPermissionIdentity.user(username), permission);
+    protected void invalidateCachedPermissions() {
+        getEffectivePermissions().invalidateAll();
+        AclDecisionCache.invalidateAll();
     }
-    
+
     /**
-     * Checks if the permission is granted for the user with the given username
-     * within the identity type Group.
-     * 
-     * @param userId     the user id
-     * @param permission the permission
-     * @return true if permission is granted
+     * Gets the effective permissions of users in this ACL.
+     *
+     * @return the effective permissions
      */
-    private boolean isPermissionSetGroup(int userId, Permission permission) {
-        List<GitLabPermissionIdentity> groups = grantedPermissions.getGroupPermissionIdentities();
-        
-        GitLabGroupMemberInfo groupMember;
-        
-        for (GitLabPermissionIdentity group : groups) {
-            try {
-                groupMember = GitLab.getGroupMember(userId, group.id);
-                
-                // Check if user is member of group
-                if(groupMember != null && !groupMember.isBlocked()) {
-                    // Check if the group has the given permission
-                    if (isPermissionSet(group, permission)) {
-                        return true;
-                    }
+    private EffectivePermissionCache getEffectivePermissions() {
+        EffectivePermissionCache cache = effectivePermissions;
+        if (cache == null) {
+            // created lazily as transient fields aren't initialized when unmarshalled
+            synchronized (this) {
+                cache = effectivePermissions;
+                if (cache == null) {
+                    cache = createEffectivePermissionCache();
+                    effectivePermissions = cache;
                 }
-            } catch (GitLabApiException e) {}
+            }
         }
-        return false;
+        return cache;
     }
-    
+
+    /**
+     * Creates the cache of the effective permissions of users in this ACL.
+     *
+     * @return the cache
+     */
+    EffectivePermissionCache createEffectivePermissionCache() {
+        return new EffectivePermissionCache(this);
+    }
+
     /**
      * Checks if GitLabIdentity Anonymous has the given permission.
      * 
@@ -188,28 +403,94 @@ public abstract class GitLabAbstractACL extends ACL {
      * @return true if permission is granted
      */
     protected boolean isPermissionSetAnon(Permission permission) {
-        return isPermissionSet(GitLabPermissionIdentity.JENKINS_ANONYMOUS, permission);
+        return isGranted(GitLabPermissionIdentity.JENKINS_ANONYMOUS, permission);
     }
     
     /**
      * Checks if the given permission is set for the given user.
-     * 
+     *
+     * Identities only needing the permission table are checked first, the effective permissions depending on remote
+     * facts are only used if an identity of such a kind grants the permission.
+     *
      * @param user       the user
      * @param permission the permission
      * @return true if permission is granted
      */
     protected boolean isPermissionSetStandard(GitLabUserDetails user, Permission permission) {
-        if (isPermissionSetJenkins(user, permission)) {
+        return isPermissionSetLocally(user, permission) || isPermissionSetRemotely(user, permission);
+    }
+
+    /**
+     * Checks if the given permission is set for the logged in or user identities of the given user.
+     *
+     * Only the permission table is used.
+     *
+     * @param user       the user
+     * @param permission the permission
+     * @return true if permission is granted
+     */
+    protected boolean isPermissionSetLocally(GitLabUserDetails user, Permission permission) {
+        if (isGranted(GitLabPermissionIdentity.JENKINS_LOGGED_IN, permission)
+                || isGranted(GitLabPermissionIdentity.user(user.getUsername()), permission)) {
+            AclMetrics.recordLocalDecision();
             return true;
         }
-        
-        if (isPermissionSetUser(user.getUsername(), permission)) {
-            return true;
+        return false;
+    }
+
+    /**
+     * Checks if the given permission is set for the given user through identities depending on remote facts, like
+     * admin status, group memberships and GitLab access levels.
+     *
+     * @param user       the user
+     * @param permission the permission
+     * @return true if permission is granted
+     */
+    protected boolean isPermissionSetRemotely(GitLabUserDetails user, Permission permission) {
+        return isPermissionSetRemotely(new UserFacts(user, this), permission);
+    }
+
+    /**
+     * Checks if the given permission is set for a user through identities depending on remote facts.
+     *
+     * Only identities granting the permission are considered, so no remote lookups are made if no such identity
+     * grants it. The effective permissions of the user are used once computed, until then only the admin status,
+     * groups and access levels granting the permission are looked up through the facts of the user.
+     *
+     * @param facts      the facts of the user
+     * @param permission the permission
+     * @return true if permission is granted
+     */
+    boolean isPermissionSetRemotely(UserFacts facts, Permission permission) {
+        CompiledPermissions compiled = grantedPermissions.getCompiledPermissions();
+        boolean grantedToAdmin = compiled.hasPermission(GitLabPermissionIdentity.JENKINS_ADMIN, permission);
+        List<GitLabPermissionIdentity> groups = compiled.getGrantingIdentities(IdentityType.GROUP, permission);
+        List<GitLabPermissionIdentity> accessLevels = compiled.getGrantingIdentities(IdentityType.GITLAB, permission);
+
+        if (!grantedToAdmin && groups.isEmpty() && accessLevels.isEmpty()) {
+            AclMetrics.recordLocalDecision();
+            return false;
+        }
+
+        long[] effective = getEffectivePermissions().getPermissions(facts.getUser(), compiled);
+        if (effective != null) {
+            AclMetrics.recordRemoteDecision();
+            return compiled.hasPermission(effective, permission);
         }
-        
-        if (isPermissionSetGroup(user.getId(), permission)) {
+
+        AclMetrics.recordTargetedDecision();
+        if (grantedToAdmin && facts.isAdmin()) {
             return true;
         }
-        return false;
+        if (!groups.isEmpty()) {
+            Set<String> paths = new HashSet<String>();
+            for (GitLabPermissionIdentity group : groups) {
+                paths.add(group.id);
+            }
+            if (!facts.getActiveGroupPaths(paths).isEmpty()) {
+                return true;
+            }
+        }
+        return !accessLevels.isEmpty() && accessLevels.contains(getAccessLevelIdentity(facts));
     }
-}
\ No newline at end of file
+}
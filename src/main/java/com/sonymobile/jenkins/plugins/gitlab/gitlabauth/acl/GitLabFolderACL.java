@@ -26,19 +26,18 @@
 package com.sonymobile.jenkins.plugins.gitlab.gitlabauth.acl;
 
 import com.sonymobile.gitlab.exceptions.GitLabApiException;
-import com.sonymobile.gitlab.model.GitLabAccessLevel;
-import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.GitLab;
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.acl.GitLabPermissionIdentity.IdentityType;
 import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.authorization.GitLabAuthorization;
 import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.security.GitLabUserDetails;
 import hudson.model.Item;
 import hudson.model.View;
+import hudson.security.AuthorizationStrategy;
 import hudson.security.Permission;
 import hudson.security.PermissionGroup;
 import jenkins.model.Jenkins;
 import org.acegisecurity.Authentication;
 
 import java.util.Collection;
-import java.util.logging.Logger;
 
 import static java.util.Arrays.asList;
 
@@ -50,10 +49,6 @@ import static java.util.Arrays.asList;
 public class GitLabFolderACL extends GitLabAbstractACL {
     /** The group id associated with this ACL */
     private int groupId;
-    
-    /** Logger for this class. */
-    private final transient Logger LOGGER = Logger.getLogger(GitLabFolderACL.class.getName());
-
 
     /**
      * Creates a folder ACL to use for GitLabFolderAuthorization with default permissions.
@@ -95,69 +90,99 @@ public class GitLabFolderACL extends GitLabAbstractACL {
      */
     public void setGroupId(int groupId) {
         this.groupId = groupId;
+        invalidateCachedPermissions();
     }
 
     /**
      * Checks if the given principal has permission to use the permission.
      * 
+     * The global and folder permissions are evaluated in a single pass. The identities only depending on the
+     * permission tables of both ACLs are checked first, then the facts of the user needing remote lookups, like admin
+     * status, group memberships and the access level in the group of the folder, are gathered once and shared by the
+     * evaluation of both ACLs.
+     * 
      * @param auth       the authentication object
      * @param permission the permission
      * @return true if permission is granted
      */
     @Override
-    public boolean hasPermission(Authentication auth, Permission permission) {
-        if(hasGlobalPermission(auth, permission)) {
+    protected boolean isPermissionGranted(Authentication auth, Permission permission) {
+        if (isPermissionSetAnon(permission)) {
             return true;
         }
+        GitLabGlobalACL rootACL = getRootACL();
+        if (!isLoggedIn(auth)) {
+            // e.g. the system or anonymous users, only depending on the global permission table
+            return rootACL != null && rootACL.hasPermission(auth, permission);
+        }
         
-        if (isLoggedIn(auth)) {
-            GitLabUserDetails user = (GitLabUserDetails) auth.getPrincipal();
-            
-            if (isPermissionSetStandard(user, permission)) {
-                return true;
-            }
-            
-            if (isPermissionSetGitLab(user.getId(), groupId, permission)) {
-                return true;
-            }
+        GitLabUserDetails user = (GitLabUserDetails) auth.getPrincipal();
+        if (isPermissionSetLocally(user, permission)) {
+            return true;
         }
-        return isPermissionSetAnon(permission);
+        if (rootACL == null) {
+            return isPermissionSetRemotely(new UserFacts(user, this), permission);
+        }
+        // includes the GitLab access level of the user in the group
+        return isPermissionSetGlobally(rootACL, user, permission, new UserFacts(user, rootACL));
     }
     
     /**
-     * Checks if the given permission is set for the given user for a GitLab folder.
+     * Evaluates if the given logged in user has permission to use the permission using shared facts.
      * 
-     * @param userId     the GitLab id of the user
-     * @param groupId    the GitLab id of the group
+     * @param auth       the authentication object of a logged in user
      * @param permission the permission
+     * @param facts      the facts of the user
      * @return true if permission is granted
      */
-    private boolean isPermissionSetGitLab(int userId, int groupId, Permission permission) {
-        try {
-            GitLabAccessLevel accessLevel = GitLab.getAccessLevelInGroup(userId, groupId);
-            
-            if (isPermissionSet(GitLabPermissionIdentity.getGitLabIdentityFromAccessLevel(accessLevel), permission)) {
-                return true;
-            }
-        } catch (GitLabApiException e) {
-            LOGGER.warning("Connection to the GitLab API failed.");
+    @Override
+    boolean isPermissionGranted(Authentication auth, Permission permission, UserFacts facts) {
+        if (isPermissionSetAnon(permission)) {
+            return true;
+        }
+        GitLabUserDetails user = facts.getUser();
+        if (isPermissionSetLocally(user, permission)) {
+            return true;
         }
-        return false;
+        GitLabGlobalACL rootACL = getRootACL();
+        if (rootACL == null) {
+            return isPermissionSetRemotely(facts, permission);
+        }
+        return isPermissionSetGlobally(rootACL, user, permission, facts);
     }
-
+    
     /**
-     * Checks if the user has global access rights.
+     * Checks the permission in the global ACL, then remotely in this ACL.
      * 
-     * @param auth       the authentication
+     * The permission must already have been checked anonymously and locally in this ACL.
+     * 
+     * @param rootACL    the global ACL
+     * @param user       the user
      * @param permission the permission
-     * @return true if the given user has the given permission
+     * @param facts      the facts of the user
+     * @return true if permission is granted
      */
-    private boolean hasGlobalPermission(Authentication auth, Permission permission) {
-        GitLabAuthorization authorization = getGitLabAuthorization();
-        if (authorization != null) {
-            return (authorization.getRootACL()).hasPermission(auth, permission);
+    private boolean isPermissionSetGlobally(GitLabGlobalACL rootACL, GitLabUserDetails user, Permission permission,
+            UserFacts facts) {
+        if (rootACL.isPermissionSetAnon(permission) || rootACL.isPermissionSetLocally(user, permission)) {
+            return true;
         }
-        return false;
+        return rootACL.isPermissionSetRemotely(facts, permission) || isPermissionSetRemotely(facts, permission);
+    }
+    
+    /**
+     * Gets the GitLab access level identity of a user in the group of the folder.
+     *
+     * @param facts the facts of the user
+     * @return the access level identity, or null if no access level grants any permissions or the lookup failed
+     */
+    @Override
+    GitLabPermissionIdentity getAccessLevelIdentity(UserFacts facts) {
+        if (!getGrantedPermissions().getCompiledPermissions().hasAnyPermission(IdentityType.GITLAB)) {
+            AclMetrics.recordSkippedAccessLevelLookup();
+            return null;
+        }
+        return facts.getAccessLevelIdentity(groupId);
     }
 
     @Override
@@ -173,21 +198,44 @@ public class GitLabFolderACL extends GitLabAbstractACL {
      * @return true is the user has admin access else false
      */
     protected boolean isAdmin(GitLabUserDetails user) {
-        GitLabAuthorization authorization = getGitLabAuthorization();
-        if (authorization != null) {
-            return ((GitLabGlobalACL) authorization.getRootACL()).isAdmin(user);
-        }
-        return false;
+        GitLabGlobalACL rootACL = getRootACL();
+        return rootACL != null && rootACL.isAdmin(user);
+    }
+    
+    /**
+     * Checks if the given user has admin access on the Jenkins server, failing if GitLab couldn't be reached.
+     * 
+     * @param user the user
+     * @return true is the user has admin access else false
+     * @throws GitLabApiException if the connection against GitLab failed
+     */
+    @Override
+    boolean lookUpAdmin(GitLabUserDetails user) throws GitLabApiException {
+        GitLabGlobalACL rootACL = getRootACL();
+        return rootACL != null && rootACL.lookUpAdmin(user);
+    }
+    
+    /**
+     * Creates the facts of a user, deciding the admin status through the global ACL.
+     * 
+     * @param user the user
+     * @return the facts
+     */
+    @Override
+    UserFacts createUserFacts(GitLabUserDetails user) {
+        GitLabGlobalACL rootACL = getRootACL();
+        return new UserFacts(user, rootACL != null ? rootACL : this);
     }
     
     /**
-     * Gets the GitLabAuthorization object if its configured to be used by Jenkins.
+     * Gets the global ACL of the GitLabAuthorization object if its configured to be used by Jenkins.
      * 
-     * @return a GitLabAuthorization object or null if its not configured
+     * @return the global ACL or null if GitLabAuthorization isn't configured
      */
-    private GitLabAuthorization getGitLabAuthorization() {
-        if(Jenkins.getInstance().getAuthorizationStrategy() instanceof GitLabAuthorization) {
-            return (GitLabAuthorization) Jenkins.getInstance().getAuthorizationStrategy();
+    private GitLabGlobalACL getRootACL() {
+        AuthorizationStrategy strategy = Jenkins.getInstance().getAuthorizationStrategy();
+        if (strategy instanceof GitLabAuthorization) {
+            return (GitLabGlobalACL) strategy.getRootACL();
         }
         return null;
     }
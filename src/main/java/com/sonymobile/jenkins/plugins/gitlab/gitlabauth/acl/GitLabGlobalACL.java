@@ -25,8 +25,9 @@
 
 package com.sonymobile.jenkins.plugins.gitlab.gitlabauth.acl;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.sonymobile.gitlab.exceptions.GitLabApiException;
-import com.sonymobile.gitlab.model.GitLabGroupMemberInfo;
 import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.GitLab;
 import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.security.GitLabUserDetails;
 import hudson.security.ACL;
@@ -37,11 +38,14 @@ import org.apache.commons.lang.StringUtils;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.logging.Logger;
 
+import static java.util.concurrent.TimeUnit.MINUTES;
+
 /**
  * Global ACL for GitLab
  * 
@@ -57,8 +61,22 @@ public class GitLabGlobalACL extends GitLabAbstractACL {
     /** If we want all GitLab admins to be Jenkins admins aswell. */
     private boolean useGitLabAdmins;
     
+    /** The number of minutes the admin status of a user is cached. */
+    private static final long ADMIN_STATUS_EXPIRY_MINUTES = 5;
+    
+    /** The maximum number of users with a cached admin status. */
+    private static final long ADMIN_STATUS_MAX_SIZE = 1000;
+    
+    /**
+     * The cached admin status by user ID, created when first needed.
+     * 
+     * The admin settings can't change for an instance, a changed configuration creates a new ACL with an empty cache.
+     * A status is only used as long as the membership generation of the user is unchanged.
+     */
+    private transient volatile Cache<Integer, AdminStatus> adminStatus;
+    
     /** Logger for this class. */
-    private final transient Logger LOGGER = Logger.getLogger(GitLabGlobalACL.class.getName());
+    private static final Logger LOGGER = Logger.getLogger(GitLabGlobalACL.class.getName());
     
     /**
      * Creates a global ACL to use for GitLabAuthorization.
@@ -125,43 +143,118 @@ public class GitLabGlobalACL extends GitLabAbstractACL {
      * @return true if the given principal has permission
      */
     @Override
-    public boolean hasPermission(Authentication auth, Permission permission) {
+    protected boolean isPermissionGranted(Authentication auth, Permission permission) {
         if (auth == ACL.SYSTEM) {
             return true;
         }
         
+        // the anonymous permissions are cheapest to check
+        if (isPermissionSetAnon(permission)) {
+            return true;
+        }
+        
         if(isLoggedIn(auth)) {
             GitLabUserDetails user = (GitLabUserDetails) auth.getPrincipal();
             
-            if (isPermissionSetStandard(user, permission)) {
-                return true;
-            }
+            return isPermissionSetStandard(user, permission);
         }
-        return isPermissionSetAnon(permission);
+        return false;
+    }
+    
+    /**
+     * Evaluates if the given logged in user has permission to use the permission using shared facts.
+     * 
+     * @param auth       the authentication object of a logged in user
+     * @param permission the permission
+     * @param facts      the facts of the user
+     * @return true if permission is granted
+     */
+    @Override
+    boolean isPermissionGranted(Authentication auth, Permission permission, UserFacts facts) {
+        GitLabUserDetails user = facts.getUser();
+        return isPermissionSetAnon(permission) || isPermissionSetLocally(user, permission)
+                || isPermissionSetRemotely(facts, permission);
     }
     
     /**
      * Checks if the given user has admin access on the jenkins server.
      * 
+     * The admin status is cached for a few minutes, or until the memberships of the user change or the cached data
+     * of the user is invalidated.
+     * 
      * @param user the user
      * @return true is the user has admin access else false
      */
     public boolean isAdmin(GitLabUserDetails user) {
         try {
-            GitLabGroupMemberInfo groupMember;
-            
-            for (int i = 0; i < adminGroups.size(); i++) {
-                groupMember = GitLab.getGroupMember(user.getId(), adminGroups.get(i));
-                
-                if(groupMember != null && !groupMember.isBlocked()) {
-                    return true;
-                }
-            }
-            return adminUsernames.contains(user.getUsername()) || (useGitLabAdmins && GitLab.isAdmin(user.getId()));
+            return lookUpAdmin(user);
         } catch (GitLabApiException e) {
             LOGGER.warning("Connection to the GitLab API failed.");
+            return false;
         }
-        return false;
+    }
+    
+    /**
+     * Checks if the given user has admin access on the jenkins server, failing if GitLab couldn't be reached.
+     * 
+     * @param user the user
+     * @return true is the user has admin access else false
+     * @throws GitLabApiException if the connection against GitLab failed
+     */
+    @Override
+    boolean lookUpAdmin(GitLabUserDetails user) throws GitLabApiException {
+        Cache<Integer, AdminStatus> cache = getAdminStatus();
+        // read before evaluating so a status racing with an invalidation is never used
+        long generation = GitLab.getMembershipGeneration(user.getId());
+        AdminStatus status = cache.getIfPresent(user.getId());
+        if (status != null && status.generation == generation) {
+            return status.admin;
+        }
+        // failures aren't cached
+        boolean admin = evaluateAdmin(user);
+        cache.put(user.getId(), new AdminStatus(admin, generation));
+        return admin;
+    }
+    
+    /**
+     * Evaluates if the given user has admin access on the jenkins server without using the cache.
+     * 
+     * @param user the user
+     * @return true is the user has admin access else false
+     * @throws GitLabApiException if the connection against GitLab failed
+     */
+    private boolean evaluateAdmin(GitLabUserDetails user) throws GitLabApiException {
+        if (adminUsernames.contains(user.getUsername())) {
+            return true;
+        }
+        if (useGitLabAdmins && GitLab.isAdmin(user.getId())) {
+            return true;
+        }
+        // all admin groups are checked against the memberships of the user at once
+        return !getActiveGroupPaths(user.getId(), new HashSet<String>(adminGroups)).isEmpty();
+    }
+    
+    /**
+     * Gets the cache of admin statuses.
+     * 
+     * @return the cache
+     */
+    private Cache<Integer, AdminStatus> getAdminStatus() {
+        Cache<Integer, AdminStatus> cache = adminStatus;
+        if (cache == null) {
+            // created lazily as transient fields aren't initialized when unmarshalled
+            synchronized (this) {
+                cache = adminStatus;
+                if (cache == null) {
+                    cache = CacheBuilder.newBuilder()
+                            .maximumSize(ADMIN_STATUS_MAX_SIZE)
+                            .expireAfterWrite(ADMIN_STATUS_EXPIRY_MINUTES, MINUTES)
+                            .build();
+                    adminStatus = cache;
+                }
+            }
+        }
+        return cache;
     }
 
     @Override
@@ -200,4 +293,26 @@ public class GitLabGlobalACL extends GitLabAbstractACL {
     public boolean getUseGitLabAdmins() {
         return useGitLabAdmins;
     }
+
+    /**
+     * The cached admin status of a user.
+     */
+    private static final class AdminStatus {
+        /** Whether the user is an admin. */
+        private final boolean admin;
+
+        /** The membership generation of the user when the status was evaluated. */
+        private final long generation;
+
+        /**
+         * Creates an admin status.
+         *
+         * @param admin      whether the user is an admin
+         * @param generation the membership generation of the user
+         */
+        private AdminStatus(boolean admin, long generation) {
+            this.admin = admin;
+            this.generation = generation;
+        }
+    }
 }
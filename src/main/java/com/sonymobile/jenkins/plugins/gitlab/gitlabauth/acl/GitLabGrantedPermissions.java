@@ -37,9 +37,10 @@ import hudson.security.Permission;
 import hudson.security.PermissionGroup;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
 import java.util.logging.Logger;
 
 /**
@@ -51,11 +52,17 @@ public class GitLabGrantedPermissions {
     /** Map of GitLab identities and their respective granted permissions. */
     private Map<GitLabPermissionIdentity, List<Permission>> grantedPermissions;
 
+    /** The compiled form of the granted permissions, or null if it has to be compiled. */
+    private transient volatile CompiledPermissions compiledPermissions;
+
+    /** The identities with granted permissions in display order, or null if they have to be sorted. */
+    private transient volatile List<GitLabPermissionIdentity> sortedIdentities;
+
     /**
-     * Creates a TreeMap to store the identities and their respective granted permissions.
+     * Creates a HashMap to store the identities and their respective granted permissions.
      */
     public GitLabGrantedPermissions() {
-        grantedPermissions = new TreeMap<GitLabPermissionIdentity, List<Permission>>();
+        grantedPermissions = new HashMap<GitLabPermissionIdentity, List<Permission>>();
     }
 
     /**
@@ -74,6 +81,24 @@ public class GitLabGrantedPermissions {
         return false;
     }
 
+    /**
+     * Checks if the given identity has the given permission, either granted directly or implied by another
+     * granted permission.
+     *
+     * Unlike {@link #isPermissionSet(GitLabPermissionIdentity, Permission)} this uses the compiled form of the
+     * permissions and should be used when evaluating access.
+     *
+     * @param identity   the identity
+     * @param permission the permission
+     * @return true if the identity has permission
+     */
+    public boolean hasPermission(GitLabPermissionIdentity identity, Permission permission) {
+        if (identity != null && permission != null) {
+            return getCompiledPermissions().hasPermission(identity, permission);
+        }
+        return false;
+    }
+
     /**
      * Adds a permission for the given identity.
      *
@@ -84,8 +109,10 @@ public class GitLabGrantedPermissions {
         if (identity != null && permission != null) {
             if (!grantedPermissions.containsKey(identity)) {
                 grantedPermissions.put(identity, new ArrayList<Permission>());
+                sortedIdentities = null;
             }
             grantedPermissions.get(identity).add(permission);
+            compiledPermissions = null;
         }
     }
 
@@ -135,10 +162,7 @@ public class GitLabGrantedPermissions {
         List<GitLabPermissionIdentity> list =
                 GitLabPermissionIdentity.getGlobalStaticPermissionIdentities(getGitLabIdentities);
 
-        List<GitLabPermissionIdentity> grantedIdentities =
-                new ArrayList<GitLabPermissionIdentity>(grantedPermissions.keySet());
-
-        for (GitLabPermissionIdentity pi : grantedIdentities) {
+        for (GitLabPermissionIdentity pi : getSortedIdentities()) {
             if (!list.contains(pi) && (pi.type.equals(IdentityType.USER) || pi.type.equals(IdentityType.GROUP))) {
                 list.add(pi);
             }
@@ -146,10 +170,44 @@ public class GitLabGrantedPermissions {
         return list;
     }
 
+    /**
+     * Gets the compiled form of the granted permissions, compiling it if the permissions have changed.
+     *
+     * A new object is returned after any change to the permissions.
+     *
+     * @return the compiled permissions
+     */
+    CompiledPermissions getCompiledPermissions() {
+        CompiledPermissions compiled = compiledPermissions;
+        if (compiled == null) {
+            compiled = CompiledPermissions.compile(grantedPermissions);
+            compiledPermissions = compiled;
+        }
+        return compiled;
+    }
+
+    /**
+     * Gets the identities with granted permissions in display order.
+     *
+     * The order is only computed when the identities change and is used when rendering or storing the permissions.
+     *
+     * @return an unmodifiable sorted list of identities
+     */
+    private List<GitLabPermissionIdentity> getSortedIdentities() {
+        List<GitLabPermissionIdentity> sorted = sortedIdentities;
+        if (sorted == null) {
+            sorted = new ArrayList<GitLabPermissionIdentity>(grantedPermissions.keySet());
+            Collections.sort(sorted);
+            sorted = Collections.unmodifiableList(sorted);
+            sortedIdentities = sorted;
+        }
+        return sorted;
+    }
+
     public List<GitLabPermissionIdentity> getGroupPermissionIdentities() {
         List<GitLabPermissionIdentity> list = new ArrayList<GitLabPermissionIdentity>();
         
-        for (GitLabPermissionIdentity identity : grantedPermissions.keySet()) {
+        for (GitLabPermissionIdentity identity : getSortedIdentities()) {
             if (identity.type.equals(IdentityType.GROUP)) {
                 list.add(identity);
             }
@@ -173,7 +231,7 @@ public class GitLabGrantedPermissions {
         public void marshal(Object value, HierarchicalStreamWriter writer, MarshallingContext context) {
             GitLabGrantedPermissions grantedPermissions = (GitLabGrantedPermissions)value;
 
-            for (GitLabPermissionIdentity pi : grantedPermissions.grantedPermissions.keySet()) {
+            for (GitLabPermissionIdentity pi : grantedPermissions.getSortedIdentities()) {
                 List<Permission> permissions = grantedPermissions.grantedPermissions.get(pi);
 
                 for (int i = 0; i < permissions.size(); i++) {
@@ -27,12 +27,17 @@ package com.sonymobile.jenkins.plugins.gitlab.gitlabauth.acl;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentMap;
 
+import com.google.common.collect.MapMaker;
 import com.sonymobile.gitlab.model.GitLabAccessLevel;
 
 /**
  * Used to create a permission identity.
  * 
+ * User and group identities are interned, so looking up the identity of a known username or group name returns the
+ * same instance without allocating.
+ * 
  * @author Andreas Alanko
  */
 public class GitLabPermissionIdentity implements Comparable<GitLabPermissionIdentity> {
@@ -45,18 +50,34 @@ public class GitLabPermissionIdentity implements Comparable<GitLabPermissionIden
     /** The type of this identity. */
     public final IdentityType type;
     
-    private GitLabPermissionIdentity(String displayName, String id, IdentityType type) {
+    /** The cached hash code of this identity. */
+    private final int hashCode;
+    
+    /** The display rank of a GitLab or Jenkins access level identity, precomputed for sorting. */
+    private final int rank;
+    
+    /** Interned user identities by username, released when no longer referenced. */
+    private static final ConcurrentMap<String, GitLabPermissionIdentity> users =
+            new MapMaker().weakValues().makeMap();
+    
+    /** Interned group identities by group name, released when no longer referenced. */
+    private static final ConcurrentMap<String, GitLabPermissionIdentity> groups =
+            new MapMaker().weakValues().makeMap();
+    
+    private GitLabPermissionIdentity(String displayName, String id, IdentityType type, int rank) {
         this.displayName = displayName;
         this.id = id;
         this.type = type;
+        this.hashCode = 31 * type.hashCode() + id.hashCode();
+        this.rank = rank;
     }
     
     private GitLabPermissionIdentity(GitLabAccessLevel accessLevel) {
-        this(accessLevel.toString(), accessLevel.name(), IdentityType.GITLAB);
+        this(accessLevel.toString(), accessLevel.name(), IdentityType.GITLAB, accessLevel.ordinal());
     }
     
     private GitLabPermissionIdentity(JenkinsAccessLevel accessLevel) {
-        this(accessLevel.displayName, accessLevel.name(), IdentityType.JENKINS);
+        this(accessLevel.displayName, accessLevel.name(), IdentityType.JENKINS, accessLevel.ordinal());
     }
     
     /**
@@ -66,7 +87,7 @@ public class GitLabPermissionIdentity implements Comparable<GitLabPermissionIden
      * @return the permission identity
      */
     public static GitLabPermissionIdentity user(String username) {
-        return new GitLabPermissionIdentity(username, username, IdentityType.USER);
+        return intern(users, username, IdentityType.USER);
     }
     
     /**
@@ -76,7 +97,28 @@ public class GitLabPermissionIdentity implements Comparable<GitLabPermissionIden
      * @return the permission identity
      */
     public static GitLabPermissionIdentity group(String groupName) {
-        return new GitLabPermissionIdentity(groupName, groupName, IdentityType.GROUP);
+        return intern(groups, groupName, IdentityType.GROUP);
+    }
+    
+    /**
+     * Gets the canonical identity with the given id from a pool, creating it only if it doesn't exist.
+     * 
+     * @param pool the pool of interned identities
+     * @param id   the id of the identity
+     * @param type the type of the identity
+     * @return the interned identity
+     */
+    private static GitLabPermissionIdentity intern(ConcurrentMap<String, GitLabPermissionIdentity> pool, String id,
+                                                   IdentityType type) {
+        GitLabPermissionIdentity identity = pool.get(id);
+        if (identity == null) {
+            GitLabPermissionIdentity created = new GitLabPermissionIdentity(id, id, type, 0);
+            identity = pool.putIfAbsent(id, created);
+            if (identity == null) {
+                identity = created;
+            }
+        }
+        return identity;
     }
     
     @Override
@@ -93,6 +135,9 @@ public class GitLabPermissionIdentity implements Comparable<GitLabPermissionIden
      */
     @Override
     public boolean equals(Object object) {
+        if (object == this) {
+            return true;
+        }
         if (object instanceof GitLabPermissionIdentity) {
             if (object != null) {
                 if (type.equals(((GitLabPermissionIdentity) object).type)) {
@@ -105,6 +150,11 @@ public class GitLabPermissionIdentity implements Comparable<GitLabPermissionIden
         return false;
     }
     
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+    
     /**
      * Compares this permission identity object with the given.
      * 
@@ -112,6 +162,8 @@ public class GitLabPermissionIdentity implements Comparable<GitLabPermissionIden
      * Return 0 if objects are equals.
      * Return -1 if this is considered lesser than the given.
      * 
+     * The ordering is only used when displaying or storing identities, lookups use the hash code.
+     * 
      * @param object the object to be compared
      * @return an integer with the result (1, 0, -1)
      */
@@ -123,32 +175,16 @@ public class GitLabPermissionIdentity implements Comparable<GitLabPermissionIden
             return 1;
         } else if (thisValue > objectValue) {
             return -1;
-        } else {
-            if (type == IdentityType.GITLAB) {
-                int thisAccessLevel = GitLabAccessLevel.getAccessLevelWithName(id).ordinal();
-                int objectAccessLevel = GitLabAccessLevel.getAccessLevelWithName(object.id).ordinal();
-                
-                if (thisAccessLevel < objectAccessLevel) {
-                    return 1;
-                } else if (thisAccessLevel > objectAccessLevel) {
-                    return -1;
-                } else {
-                    return 0;
-                }
-            } else if (type == IdentityType.JENKINS) {
-                int thisAccessLevel = JenkinsAccessLevel.getAccessLevelWithName(id).ordinal();
-                int objectAccessLevel = JenkinsAccessLevel.getAccessLevelWithName(object.id).ordinal();
-                
-                if (thisAccessLevel < objectAccessLevel) {
-                    return 1;
-                } else if (thisAccessLevel > objectAccessLevel) {
-                    return -1;
-                } else {
-                    return 0;
-                }
+        } else if (type == IdentityType.GITLAB || type == IdentityType.JENKINS) {
+            if (rank < object.rank) {
+                return 1;
+            } else if (rank > object.rank) {
+                return -1;
             } else {
-                return id.compareTo(object.id);
+                return 0;
             }
+        } else {
+            return id.compareTo(object.id);
         }
     }
     
@@ -199,7 +235,7 @@ public class GitLabPermissionIdentity implements Comparable<GitLabPermissionIden
         case GUEST:
             return GITLAB_GUEST;
         default:
-            return new GitLabPermissionIdentity(GitLabAccessLevel.NONE);
+            return GITLAB_NONE;
         }
     }
     
@@ -244,6 +280,10 @@ public class GitLabPermissionIdentity implements Comparable<GitLabPermissionIden
     public static final GitLabPermissionIdentity GITLAB_GUEST = 
             new GitLabPermissionIdentity(GitLabAccessLevel.GUEST);
     
+    /** Identity for users without access to a group, never granted any permissions in the UI. */
+    public static final GitLabPermissionIdentity GITLAB_NONE = 
+            new GitLabPermissionIdentity(GitLabAccessLevel.NONE);
+    
     /** Enum for different identity types. */
     public enum IdentityType {
         GROUP("Group"),
@@ -0,0 +1,113 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Andreas Alanko, Emil Nilsson, Sony Mobile Communications AB.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.sonymobile.jenkins.plugins.gitlab.gitlabauth.acl;
+
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.security.GitLabUserDetails;
+import hudson.security.ACL;
+import hudson.security.Permission;
+import org.acegisecurity.Authentication;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Checks a permission for one principal in many ACLs, e.g. when filtering the items of a list.
+ *
+ * Each distinct ACL is only evaluated once and the facts about a GitLab user, like admin status and group
+ * memberships, are gathered once and shared by the evaluation of all ACLs. Not thread safe, an instance should only
+ * be used for a single batch of checks.
+ *
+ * @author Emil Nilsson
+ */
+public final class PermissionBatch {
+    /** The authentication object. */
+    private final Authentication auth;
+
+    /** The permission. */
+    private final Permission permission;
+
+    /** The global ACL deciding whether the user is an admin. */
+    private final GitLabGlobalACL rootACL;
+
+    /** The facts of the user, or null if not yet needed. */
+    private UserFacts facts;
+
+    /** The decisions made so far by ACL. */
+    private final Map<ACL, Boolean> decisions = new IdentityHashMap<ACL, Boolean>();
+
+    /**
+     * Creates a batch of checks.
+     *
+     * @param auth       the authentication object
+     * @param permission the permission
+     * @param rootACL    the global ACL
+     */
+    public PermissionBatch(Authentication auth, Permission permission, GitLabGlobalACL rootACL) {
+        this.auth = auth;
+        this.permission = permission;
+        this.rootACL = rootACL;
+    }
+
+    /**
+     * Checks if the principal has the permission in an ACL.
+     *
+     * @param acl the ACL
+     * @return true if permission is granted
+     */
+    public boolean hasPermission(ACL acl) {
+        Boolean decision = decisions.get(acl);
+        if (decision == null) {
+            decision = evaluate(acl);
+            decisions.put(acl, decision);
+        }
+        return decision;
+    }
+
+    /**
+     * Evaluates the permission in an ACL, sharing the facts of the user for GitLab ACLs.
+     *
+     * @param acl the ACL
+     * @return true if permission is granted
+     */
+    private boolean evaluate(ACL acl) {
+        if (acl instanceof GitLabAbstractACL && isLoggedIn()) {
+            if (facts == null) {
+                facts = new UserFacts((GitLabUserDetails)auth.getPrincipal(), rootACL);
+            }
+            return ((GitLabAbstractACL)acl).hasPermission(auth, permission, facts);
+        }
+        return acl.hasPermission(auth, permission);
+    }
+
+    /**
+     * Checks if the principal is a logged in GitLab user.
+     *
+     * @return true if logged in
+     */
+    private boolean isLoggedIn() {
+        return auth.isAuthenticated() && auth.getPrincipal() instanceof GitLabUserDetails;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Andreas Alanko, Emil Nilsson, Sony Mobile Communications AB.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.sonymobile.jenkins.plugins.gitlab.gitlabauth.acl;
+
+import hudson.security.Permission;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Assigns each Jenkins permission a dense index for use in permission bitsets.
+ *
+ * Indices are assigned on first use and never change, so bitsets compiled at different times stay comparable.
+ *
+ * @author Emil Nilsson
+ */
+final class PermissionIndex {
+    /** The indices of the permissions. */
+    private static final ConcurrentMap<Permission, Integer> indices = new ConcurrentHashMap<Permission, Integer>();
+
+    /** The permissions ordered by index. */
+    private static final List<Permission> permissions = new ArrayList<Permission>();
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private PermissionIndex() { }
+
+    /**
+     * Gets the index of a permission, assigning the next free index to permissions not seen before.
+     *
+     * @param permission the permission
+     * @return the index
+     */
+    static int indexOf(Permission permission) {
+        Integer index = indices.get(permission);
+        if (index != null) {
+            return index;
+        }
+
+        synchronized (permissions) {
+            index = indices.get(permission);
+            if (index == null) {
+                index = permissions.size();
+                permissions.add(permission);
+                indices.put(permission, index);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Assigns indices to all permissions currently registered in Jenkins.
+     *
+     * @return the permissions ordered by index
+     */
+    static Permission[] indexAll() {
+        for (Permission permission : Permission.getAll()) {
+            indexOf(permission);
+        }
+
+        synchronized (permissions) {
+            return permissions.toArray(new Permission[permissions.size()]);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Andreas Alanko, Emil Nilsson, Sony Mobile Communications AB.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.sonymobile.jenkins.plugins.gitlab.gitlabauth.acl;
+
+import com.sonymobile.gitlab.exceptions.GitLabApiException;
+import com.sonymobile.gitlab.model.GitLabAccessLevel;
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.GitLab;
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.security.GitLabUserDetails;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * The facts about a user needed to evaluate ACLs, gathered once and shared by every ACL in an evaluation.
+ *
+ * Each fact is looked up the first time it's needed: the admin status, the memberships of groups and the access
+ * levels in groups. Facts which couldn't be looked up are treated as not applying to the user and are looked up again
+ * the next time they are needed. The failed lookups are counted so decisions depending on them aren't cached. Not
+ * thread safe, an instance should only be used for a single evaluation.
+ *
+ * @author Emil Nilsson
+ */
+final class UserFacts {
+    /** The user. */
+    private final GitLabUserDetails user;
+
+    /** The ACL deciding whether the user is an admin. */
+    private final GitLabAbstractACL adminSource;
+
+    /** The admin status, or null if not yet looked up. */
+    private Boolean admin;
+
+    /** The memberships of groups looked up so far by group path. */
+    private final Map<String, Boolean> activeGroups = new HashMap<String, Boolean>();
+
+    /** The access level identities looked up so far by group ID. */
+    private final Map<Integer, GitLabPermissionIdentity> accessLevels =
+            new HashMap<Integer, GitLabPermissionIdentity>();
+
+    /** The number of lookups which failed. */
+    private int failedLookups = 0;
+
+    /** Logger for this class. */
+    private static final Logger LOGGER = Logger.getLogger(UserFacts.class.getName());
+
+    /**
+     * Creates the facts of a user.
+     *
+     * @param user        the user
+     * @param adminSource the ACL deciding whether the user is an admin
+     */
+    UserFacts(GitLabUserDetails user, GitLabAbstractACL adminSource) {
+        this.user = user;
+        this.adminSource = adminSource;
+    }
+
+    /**
+     * Gets the user.
+     *
+     * @return the user
+     */
+    GitLabUserDetails getUser() {
+        return user;
+    }
+
+    /**
+     * Checks if the user is an admin.
+     *
+     * @return true if the user is an admin
+     */
+    boolean isAdmin() {
+        if (admin == null) {
+            try {
+                admin = adminSource.lookUpAdmin(user);
+            } catch (GitLabApiException e) {
+                failedLookups++;
+                LOGGER.warning("Connection to the GitLab API failed.");
+                return false;
+            }
+        }
+        return admin;
+    }
+
+    /**
+     * Gets the number of lookups which failed so far.
+     *
+     * A decision only depends on facts which were looked up if the number is unchanged after making it.
+     *
+     * @return the number of failed lookups
+     */
+    int getFailedLookupCount() {
+        return failedLookups;
+    }
+
+    /**
+     * Gets the groups among a collection of group paths the user is an active member of.
+     *
+     * All groups not looked up before are looked up at once.
+     *
+     * @param paths the group paths
+     * @return the paths of the groups the user is an active member of
+     */
+    Set<String> getActiveGroupPaths(Collection<String> paths) {
+        Set<String> unknown = new HashSet<String>();
+        for (String path : paths) {
+            if (!activeGroups.containsKey(path)) {
+                unknown.add(path);
+            }
+        }
+        if (!unknown.isEmpty()) {
+            try {
+                Set<String> active = GitLabAbstractACL.getActiveGroupPaths(user.getId(), unknown);
+                for (String path : unknown) {
+                    activeGroups.put(path, active.contains(path));
+                }
+            } catch (GitLabApiException e) {
+                failedLookups++;
+                LOGGER.warning("Connection to the GitLab API failed.");
+            }
+        }
+
+        Set<String> active = new HashSet<String>();
+        for (String path : paths) {
+            if (Boolean.TRUE.equals(activeGroups.get(path))) {
+                active.add(path);
+            }
+        }
+        return active;
+    }
+
+    /**
+     * Gets the access level identity of the user in a group.
+     *
+     * @param groupId the group ID
+     * @return the access level identity, or null if the lookup failed
+     */
+    GitLabPermissionIdentity getAccessLevelIdentity(int groupId) {
+        GitLabPermissionIdentity identity = accessLevels.get(groupId);
+        if (identity == null) {
+            try {
+                GitLabAccessLevel accessLevel = GitLab.getAccessLevelInGroup(user.getId(), groupId);
+                identity = GitLabPermissionIdentity.getGitLabIdentityFromAccessLevel(accessLevel);
+                accessLevels.put(groupId, identity);
+            } catch (GitLabApiException e) {
+                failedLookups++;
+                LOGGER.warning("Connection to the GitLab API failed.");
+            }
+        }
+        return identity;
+    }
+}
@@ -31,29 +31,38 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.acl.AclDecisionCache;
 import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.acl.GitLabAbstractACL;
 
 import jenkins.model.Jenkins;
 import net.sf.json.JSONObject;
 
+import org.acegisecurity.Authentication;
 import org.kohsuke.stapler.StaplerRequest;
 
 import com.cloudbees.hudson.plugins.folder.Folder;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.sonymobile.gitlab.model.GitLabAccessLevel;
 import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.acl.GitLabGlobalACL;
 import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.acl.GitLabGrantedPermissions;
 import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.acl.GitLabPermissionIdentity;
 import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.acl.JenkinsAccessLevel;
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.acl.PermissionBatch;
 import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.acl.GitLabPermissionIdentity.IdentityType;
 
 import hudson.Extension;
 import hudson.model.AbstractItem;
 import hudson.model.Descriptor;
+import hudson.model.Item;
 import hudson.model.Job;
+import hudson.model.listeners.ItemListener;
 import hudson.security.ACL;
 import hudson.security.AuthorizationStrategy;
 import hudson.security.Permission;
 
+import static java.util.concurrent.TimeUnit.MINUTES;
+
 /**
  * Creates an authorization strategy for GitLab.
  * 
@@ -63,6 +72,12 @@ public class GitLabAuthorization extends AuthorizationStrategy {
     /** ACL for GitLab */
     private final GitLabGlobalACL rootACL;
 
+    /** The number of minutes an ACL is resolved for an item at most, in case an invalidation was missed. */
+    private static final long RESOLVED_ACL_EXPIRY_MINUTES = 5;
+
+    /** The resolved ACLs by item, created when first needed. */
+    private transient volatile Cache<AbstractItem, ACL> resolvedACLs;
+
     /**
      * Creates an Authorization Strategy for GitLab.
      * 
@@ -74,6 +89,8 @@ public class GitLabAuthorization extends AuthorizationStrategy {
     public GitLabAuthorization(String adminUsernames, String adminGroups, boolean useGitLabAdmins,
             GitLabGrantedPermissions grantedPermissions) {
         rootACL = new GitLabGlobalACL(adminUsernames, adminGroups, useGitLabAdmins, grantedPermissions);
+        // decisions of the previous configuration must not be used
+        AclDecisionCache.invalidateAll();
     }
     
     /**
@@ -129,21 +146,52 @@ public class GitLabAuthorization extends AuthorizationStrategy {
         return rootACL;
     }
     
+    /**
+     * Gets the ACL for the given job.
+     *
+     * The resolved ACL is cached for the job.
+     *
+     * @param project the job
+     * @return an ACL
+     */
     @Override
     public ACL getACL(Job<?,?> project) {
-        if(project.getParent() instanceof Folder) {
-            return getACL((Folder) project.getParent());
+        ACL acl = getResolvedACLs().getIfPresent(project);
+        if (acl == null) {
+            if (project.getParent() instanceof Folder) {
+                acl = getACL((Folder) project.getParent());
+            } else {
+                acl = getRootACL();
+            }
+            getResolvedACLs().put(project, acl);
         }
-        return getRootACL();
+        return acl;
     }
     
     /**
      * Gets the ACL for the given folder.
      * 
+     * The resolved ACL is cached for the folder.
+     * 
      * @param folder the folder
      * @return an ACL
      */
     public ACL getACL(Folder folder) {
+        ACL acl = getResolvedACLs().getIfPresent(folder);
+        if (acl == null) {
+            acl = resolveACL(folder);
+            getResolvedACLs().put(folder, acl);
+        }
+        return acl;
+    }
+    
+    /**
+     * Resolves the ACL for the given folder from the folder and its parents.
+     * 
+     * @param folder the folder
+     * @return an ACL
+     */
+    private ACL resolveACL(Folder folder) {
         GitLabFolderAuthorization folderAuth = folder.getProperties().get(GitLabFolderAuthorization.class);
         
         if (folder.getParent() instanceof Folder) {
@@ -171,8 +219,155 @@ public class GitLabAuthorization extends AuthorizationStrategy {
         if (item instanceof Folder) {
             return getACL((Folder) item);
         }
+        if (item instanceof Job) {
+            return getACL((Job<?,?>) item);
+        }
         return getRootACL();
     }
+    
+    /**
+     * Gets the items on which the given principal has the given permission.
+     * 
+     * Items are grouped by their resolved ACL and each distinct ACL is only evaluated once, sharing the facts about
+     * the user between the evaluations.
+     * 
+     * @param auth       the authentication object
+     * @param permission the permission
+     * @param items      the items
+     * @param <T>        the type of the items
+     * @return the permitted items in the same order as given
+     */
+    public <T extends AbstractItem> List<T> filterPermitted(Authentication auth, Permission permission,
+            Collection<T> items) {
+        PermissionBatch batch = new PermissionBatch(auth, permission, rootACL);
+        List<T> permitted = new ArrayList<T>(items.size());
+        
+        for (T item : items) {
+            if (batch.hasPermission(getACL(item))) {
+                permitted.add(item);
+            }
+        }
+        return permitted;
+    }
+    
+    /**
+     * Discards all resolved ACLs, e.g. after items have been moved or folder authorizations have changed.
+     */
+    public void invalidateResolvedACLs() {
+        getResolvedACLs().invalidateAll();
+    }
+    
+    /**
+     * Discards the resolved ACLs of an item and of all items within it, e.g. after the item has been moved.
+     * 
+     * @param item the item
+     */
+    public void invalidateResolvedACLs(Item item) {
+        Cache<AbstractItem, ACL> cache = getResolvedACLs();
+        for (AbstractItem resolved : cache.asMap().keySet()) {
+            if (isWithin(resolved, item)) {
+                cache.invalidate(resolved);
+            }
+        }
+    }
+    
+    /**
+     * Checks if an item is the same as or within another item.
+     * 
+     * @param item     the item
+     * @param ancestor the other item
+     * @return true if the item is the other item or one of its descendants
+     */
+    private static boolean isWithin(Item item, Item ancestor) {
+        Object current = item;
+        while (current instanceof Item) {
+            if (current == ancestor) {
+                return true;
+            }
+            current = ((Item) current).getParent();
+        }
+        return false;
+    }
+    
+    /**
+     * Discards all resolved ACLs of the current authorization strategy if it's a GitLab authorization strategy.
+     */
+    public static void invalidateCurrentResolvedACLs() {
+        GitLabAuthorization authorization = getCurrentAuthorization();
+        if (authorization != null) {
+            authorization.invalidateResolvedACLs();
+        }
+    }
+    
+    /**
+     * Discards the resolved ACLs of an item and of all items within it in the current authorization strategy if it's a
+     * GitLab authorization strategy.
+     * 
+     * @param item the item
+     */
+    public static void invalidateCurrentResolvedACLs(Item item) {
+        GitLabAuthorization authorization = getCurrentAuthorization();
+        if (authorization != null) {
+            authorization.invalidateResolvedACLs(item);
+        }
+    }
+    
+    /**
+     * Gets the current authorization strategy if it's a GitLab authorization strategy.
+     * 
+     * @return the authorization strategy or null
+     */
+    private static GitLabAuthorization getCurrentAuthorization() {
+        Jenkins jenkins = Jenkins.getInstance();
+        if (jenkins != null && jenkins.getAuthorizationStrategy() instanceof GitLabAuthorization) {
+            return (GitLabAuthorization) jenkins.getAuthorizationStrategy();
+        }
+        return null;
+    }
+    
+    /**
+     * Gets the cache of resolved ACLs by item.
+     * 
+     * The items are compared by identity and are only weakly referenced.
+     * 
+     * @return the cache
+     */
+    private Cache<AbstractItem, ACL> getResolvedACLs() {
+        Cache<AbstractItem, ACL> cache = resolvedACLs;
+        if (cache == null) {
+            // created lazily as transient fields aren't initialized when unmarshalled
+            synchronized (this) {
+                cache = resolvedACLs;
+                if (cache == null) {
+                    cache = CacheBuilder.newBuilder()
+                            .weakKeys()
+                            .expireAfterWrite(RESOLVED_ACL_EXPIRY_MINUTES, MINUTES)
+                            .build();
+                    resolvedACLs = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Discards the resolved ACLs of items which are moved or renamed, and of the items within them.
+     * 
+     * Creating, copying or updating an item doesn't change the resolved ACL of any other item, deleted items are
+     * only weakly referenced and changes to folder authorizations are handled when they are attached to a folder.
+     */
+    @Extension
+    public static class ItemListenerImpl extends ItemListener {
+        @Override
+        public void onRenamed(Item item, String oldName, String newName) {
+            invalidateCurrentResolvedACLs(item);
+        }
+
+        @Override
+        public void onLocationChanged(Item item, String oldFullName, String newFullName) {
+            invalidateCurrentResolvedACLs(item);
+        }
+    }
 
     @Extension
     public static class DescriptorImpl extends Descriptor<AuthorizationStrategy> {
@@ -32,6 +32,7 @@ import com.sonymobile.gitlab.exceptions.GitLabApiException;
 import com.sonymobile.gitlab.model.GitLabAccessLevel;
 import com.sonymobile.gitlab.model.GitLabGroupInfo;
 import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.GitLab;
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.acl.AclDecisionCache;
 import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.acl.GitLabFolderACL;
 import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.acl.GitLabGrantedPermissions;
 import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.acl.GitLabPermissionIdentity;
@@ -84,6 +85,21 @@ public class GitLabFolderAuthorization extends FolderProperty<Folder> {
         this.folderACL = acl;
     }
 
+    /**
+     * Sets the folder of the property.
+     *
+     * Called when the property has been attached to the folder, which until then may have used the ACL of its parent
+     * or the root ACL.
+     *
+     * @param owner the folder
+     */
+    @Override
+    protected void setOwner(Folder owner) {
+        super.setOwner(owner);
+        // only the folder and the items within it can use the ACL of the property
+        GitLabAuthorization.invalidateCurrentResolvedACLs(owner);
+    }
+
     /**
      * Gets the ACL belonging to this folder.
      *
@@ -198,6 +214,9 @@ public class GitLabFolderAuthorization extends FolderProperty<Folder> {
             // preserve group ID
             newFolderAuth.folderACL.setGroupId(getGroupId());
         }
+        // decisions of the previous ACL must not be used
+        AclDecisionCache.invalidateAll();
+        GitLabAuthorization.invalidateCurrentResolvedACLs();
 
         return newFolderAuth;
     }
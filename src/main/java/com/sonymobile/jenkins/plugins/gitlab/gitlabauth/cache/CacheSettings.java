@@ -0,0 +1,164 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Andreas Alanko, Emil Nilsson, Sony Mobile Communications AB.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.sonymobile.jenkins.plugins.gitlab.gitlabauth.cache;
+
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.time.Interval;
+
+import static java.util.concurrent.TimeUnit.MINUTES;
+
+/**
+ * Settings for the caches of the GitLab facade.
+ *
+ * @author Emil Nilsson
+ */
+public final class CacheSettings {
+    /** The default duration before cached entries expire. */
+    public static final Interval DEFAULT_EXPIRY_DURATION = new Interval(1, MINUTES);
+
+    /** The default duration before users and groups are no longer considered missing. */
+    public static final Interval DEFAULT_NEGATIVE_EXPIRY_DURATION = new Interval(5, MINUTES);
+
+    /** The default maximum number of missing users or groups to remember. */
+    public static final long DEFAULT_NEGATIVE_MAXIMUM_SIZE = 10000;
+
+    /** The default settings, expiring entries after one minute without refreshing ahead. */
+    public static final CacheSettings DEFAULT = new CacheSettings(DEFAULT_EXPIRY_DURATION, false);
+
+    /** The duration before cached entries expire. */
+    private final Interval expiryDuration;
+
+    /** Whether entries should be refreshed in the background before they expire. */
+    private final boolean refreshAhead;
+
+    /** The duration before users and groups are no longer considered missing. */
+    private final Interval negativeExpiryDuration;
+
+    /** The maximum number of missing users or groups to remember. */
+    private final long negativeMaximumSize;
+
+    /**
+     * Creates cache settings with the default settings for missing users and groups.
+     *
+     * @param expiryDuration the duration before cached entries expire
+     * @param refreshAhead   whether entries should be refreshed in the background before they expire
+     */
+    public CacheSettings(Interval expiryDuration, boolean refreshAhead) {
+        this(expiryDuration, refreshAhead, DEFAULT_NEGATIVE_EXPIRY_DURATION, DEFAULT_NEGATIVE_MAXIMUM_SIZE);
+    }
+
+    /**
+     * Creates cache settings.
+     *
+     * @param expiryDuration         the duration before cached entries expire
+     * @param refreshAhead           whether entries should be refreshed in the background before they expire
+     * @param negativeExpiryDuration the duration before users and groups are no longer considered missing
+     * @param negativeMaximumSize    the maximum number of missing users or groups to remember
+     */
+    public CacheSettings(Interval expiryDuration, boolean refreshAhead, Interval negativeExpiryDuration,
+            long negativeMaximumSize) {
+        this.expiryDuration = expiryDuration;
+        this.refreshAhead = refreshAhead;
+        this.negativeExpiryDuration = negativeExpiryDuration;
+        this.negativeMaximumSize = negativeMaximumSize;
+    }
+
+    /**
+     * Gets the duration before cached entries expire.
+     *
+     * @return the duration
+     */
+    public Interval getExpiryDuration() {
+        return expiryDuration;
+    }
+
+    /**
+     * Gets the duration after which an accessed entry is refreshed in the background.
+     *
+     * Entries are refreshed halfway through their lifetime, leaving the remaining half for the jittered reload to
+     * finish before the entry expires.
+     *
+     * @return the duration in milliseconds
+     */
+    public long getRefreshAfterMilliseconds() {
+        return Math.max(1, expiryDuration.toMilliseconds() / 2);
+    }
+
+    /**
+     * Gets the maximum random delay before a background refresh is started.
+     *
+     * @return the delay in milliseconds
+     */
+    public long getRefreshJitterMilliseconds() {
+        return expiryDuration.toMilliseconds() / 4;
+    }
+
+    /**
+     * Checks whether entries should be refreshed in the background before they expire.
+     *
+     * @return true if entries should be refreshed ahead
+     */
+    public boolean isRefreshAhead() {
+        return refreshAhead;
+    }
+
+    /**
+     * Gets the duration before users and groups are no longer considered missing.
+     *
+     * @return the duration
+     */
+    public Interval getNegativeExpiryDuration() {
+        return negativeExpiryDuration;
+    }
+
+    /**
+     * Gets the maximum number of missing users or groups to remember.
+     *
+     * @return the maximum number
+     */
+    public long getNegativeMaximumSize() {
+        return negativeMaximumSize;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (other instanceof CacheSettings) {
+            CacheSettings settings = (CacheSettings)other;
+            return expiryDuration.equals(settings.expiryDuration)
+                    && refreshAhead == settings.refreshAhead
+                    && negativeExpiryDuration.equals(settings.negativeExpiryDuration)
+                    && negativeMaximumSize == settings.negativeMaximumSize;
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = (int)expiryDuration.toMilliseconds();
+        result = 31 * result + (refreshAhead ? 1 : 0);
+        result = 31 * result + (int)negativeExpiryDuration.toMilliseconds();
+        return 31 * result + (int)negativeMaximumSize;
+    }
+}
@@ -0,0 +1,327 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Andreas Alanko, Emil Nilsson, Sony Mobile Communications AB.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.sonymobile.jenkins.plugins.gitlab.gitlabauth.cache;
+
+import com.sonymobile.gitlab.model.GitLabAccessLevel;
+import com.sonymobile.gitlab.model.GitLabGroupInfo;
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.GitLabGroupMembers;
+import org.json.JSONObject;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A snapshot of cached GitLab groups and group members which can be persisted between restarts.
+ *
+ * The snapshot is stored in a compact binary format, all values in big-endian byte order:
+ * <pre>
+ * header:      magic (int), format version (short), creation time in ms since the epoch (long),
+ *              URL of the GitLab server (string)
+ * groups:      whether groups are included (byte), number of groups (int),
+ *              then for each group: group ID (int), name (string), path (string)
+ * memberships: number of groups (int),
+ *              then for each group: group ID (int), number of members (int),
+ *              user IDs (int array), access level ordinal with the blocked state in the high bit (byte array)
+ * </pre>
+ * Strings are stored as their length in bytes (int) followed by the UTF-8 encoded characters. The URL of the server
+ * is stored in the header rather than in the snapshot, so a snapshot is never loaded for another GitLab server.
+ *
+ * @author Emil Nilsson
+ */
+public final class CacheSnapshot {
+    /** The magic number identifying snapshot files ("GLCS"). */
+    private static final int MAGIC = 0x474c4353;
+
+    /** The version of the format, increased on any incompatible change including reordering of access levels. */
+    private static final short FORMAT_VERSION = 2;
+
+    /** The bit in the member flags for blocked members. */
+    private static final int BLOCKED_FLAG = 0x80;
+
+    /** The character set for strings. */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** All access levels, indexed by ordinal. */
+    private static final GitLabAccessLevel[] ACCESS_LEVELS = GitLabAccessLevel.values();
+
+    /** The time the snapshot was created in milliseconds since the epoch. */
+    private final long timestamp;
+
+    /** The groups or null if no groups are included. */
+    private final List<GitLabGroupInfo> groups;
+
+    /** The members mapped by group ID. */
+    private final Map<Integer, GitLabGroupMembers> groupMembers;
+
+    /**
+     * Creates a snapshot.
+     *
+     * @param timestamp    the time the snapshot was created in milliseconds since the epoch
+     * @param groups       the groups or null if no groups are included
+     * @param groupMembers the members mapped by group ID
+     */
+    public CacheSnapshot(long timestamp, List<GitLabGroupInfo> groups, Map<Integer, GitLabGroupMembers> groupMembers) {
+        this.timestamp = timestamp;
+        this.groups = groups != null ? Collections.unmodifiableList(groups) : null;
+        this.groupMembers = Collections.unmodifiableMap(groupMembers);
+    }
+
+    /**
+     * Returns the time the snapshot was created.
+     *
+     * @return the time in milliseconds since the epoch
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Returns the groups.
+     *
+     * @return a list of groups or null if no groups are included
+     */
+    public List<GitLabGroupInfo> getGroups() {
+        return groups;
+    }
+
+    /**
+     * Returns the group members.
+     *
+     * @return the members mapped by group ID
+     */
+    public Map<Integer, GitLabGroupMembers> getGroupMembers() {
+        return groupMembers;
+    }
+
+    /**
+     * Checks whether the snapshot contains any data.
+     *
+     * @return true if neither groups nor group members are included
+     */
+    public boolean isEmpty() {
+        return groups == null && groupMembers.isEmpty();
+    }
+
+    /**
+     * Writes the snapshot to a file.
+     *
+     * The snapshot is first written to a temporary file which then replaces the file, so that a partially written
+     * snapshot never is read.
+     *
+     * @param file      the file
+     * @param serverUrl the URL of the GitLab server the data was retrieved from
+     * @throws IOException if writing the file failed
+     */
+    public void writeTo(File file, String serverUrl) throws IOException {
+        File temporaryFile = new File(file.getPath() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)));
+
+        try {
+            out.writeInt(MAGIC);
+            out.writeShort(FORMAT_VERSION);
+            out.writeLong(timestamp);
+            writeString(out, serverUrl);
+
+            out.writeBoolean(groups != null);
+            if (groups != null) {
+                out.writeInt(groups.size());
+                for (GitLabGroupInfo group : groups) {
+                    out.writeInt(group.getId());
+                    writeString(out, group.getName());
+                    writeString(out, group.getPath());
+                }
+            }
+
+            out.writeInt(groupMembers.size());
+            for (Map.Entry<Integer, GitLabGroupMembers> entry : groupMembers.entrySet()) {
+                GitLabGroupMembers members = entry.getValue();
+                out.writeInt(entry.getKey());
+                out.writeInt(members.size());
+                for (int i = 0; i < members.size(); i++) {
+                    out.writeInt(members.getUserIdAt(i));
+                }
+                for (int i = 0; i < members.size(); i++) {
+                    out.writeByte(members.getAccessLevelAt(i).ordinal() | (members.isBlockedAt(i) ? BLOCKED_FLAG : 0));
+                }
+            }
+        } finally {
+            out.close();
+        }
+
+        // replace the previous snapshot (the old file has to be deleted first on some platforms)
+        if (!temporaryFile.renameTo(file) && !(file.delete() && temporaryFile.renameTo(file))) {
+            temporaryFile.delete();
+            throw new IOException("Failed to replace snapshot file " + file);
+        }
+    }
+
+    /**
+     * Reads a snapshot from a file.
+     *
+     * The file is memory mapped while reading. Snapshots of an unknown format, older than the maximum age or of
+     * another GitLab server are discarded.
+     *
+     * @param file      the file
+     * @param serverUrl the URL of the configured GitLab server
+     * @param maxAge    the maximum age of the snapshot in milliseconds
+     * @param now       the current time in milliseconds since the epoch
+     * @return the snapshot or null if the file is missing, of an unknown format, too old or of another server
+     * @throws IOException if reading the file failed or the file is corrupt
+     */
+    public static CacheSnapshot readFrom(File file, String serverUrl, long maxAge, long now) throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.getInt() != MAGIC || buffer.getShort() != FORMAT_VERSION) {
+                // unknown file format
+                return null;
+            }
+
+            long timestamp = buffer.getLong();
+            if (timestamp > now || now - timestamp > maxAge) {
+                // too stale, or from the future
+                return null;
+            }
+            if (!readString(buffer).equals(serverUrl)) {
+                // retrieved from another GitLab server
+                return null;
+            }
+
+            List<GitLabGroupInfo> groups = null;
+            if (buffer.get() != 0) {
+                int groupCount = readCount(buffer);
+                groups = new ArrayList<GitLabGroupInfo>(groupCount);
+                for (int i = 0; i < groupCount; i++) {
+                    groups.add(new GitLabGroupInfo(new JSONObject()
+                            .put("id", buffer.getInt())
+                            .put("name", readString(buffer))
+                            .put("path", readString(buffer))));
+                }
+            }
+
+            int groupCount = readCount(buffer);
+            Map<Integer, GitLabGroupMembers> groupMembers = new LinkedHashMap<Integer, GitLabGroupMembers>(groupCount);
+            for (int i = 0; i < groupCount; i++) {
+                int groupId = buffer.getInt();
+                int memberCount = readCount(buffer);
+
+                int[] userIds = new int[memberCount];
+                buffer.asIntBuffer().get(userIds);
+                buffer.position(buffer.position() + memberCount * 4);
+
+                GitLabAccessLevel[] accessLevels = new GitLabAccessLevel[memberCount];
+                boolean[] blocked = new boolean[memberCount];
+                for (int j = 0; j < memberCount; j++) {
+                    int flags = buffer.get() & 0xff;
+                    accessLevels[j] = toAccessLevel(flags & ~BLOCKED_FLAG);
+                    blocked[j] = (flags & BLOCKED_FLAG) != 0;
+                }
+
+                groupMembers.put(groupId, GitLabGroupMembers.fromArrays(userIds, accessLevels, blocked));
+            }
+
+            return new CacheSnapshot(timestamp, groups, groupMembers);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated snapshot file " + file, e);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Writes a string.
+     *
+     * @param out    the output stream
+     * @param string the string
+     * @throws IOException if writing failed
+     */
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = (string != null ? string : "").getBytes(UTF8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string.
+     *
+     * @param buffer the buffer
+     * @return the string
+     * @throws IOException if the length is invalid
+     */
+    private static String readString(ByteBuffer buffer) throws IOException {
+        byte[] bytes = new byte[readCount(buffer)];
+        buffer.get(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    /**
+     * Reads a count and checks that it is valid for the remaining data.
+     *
+     * @param buffer the buffer
+     * @return the count
+     * @throws IOException if the count is invalid
+     */
+    private static int readCount(ByteBuffer buffer) throws IOException {
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining()) {
+            throw new IOException("Invalid count in snapshot file: " + count);
+        }
+        return count;
+    }
+
+    /**
+     * Gets an access level by ordinal.
+     *
+     * @param ordinal the ordinal
+     * @return the access level
+     * @throws IOException if the ordinal is invalid
+     */
+    private static GitLabAccessLevel toAccessLevel(int ordinal) throws IOException {
+        if (ordinal >= ACCESS_LEVELS.length) {
+            throw new IOException("Invalid access level in snapshot file: " + ordinal);
+        }
+        return ACCESS_LEVELS[ordinal];
+    }
+}
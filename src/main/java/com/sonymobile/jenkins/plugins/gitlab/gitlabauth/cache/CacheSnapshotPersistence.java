@@ -0,0 +1,155 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Andreas Alanko, Emil Nilsson, Sony Mobile Communications AB.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.sonymobile.jenkins.plugins.gitlab.gitlabauth.cache;
+
+import com.sonymobile.jenkins.plugins.gitlab.gitlabapi.GitLabConfiguration;
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.GitLab;
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.configuration.GitLabAuthConfiguration;
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.time.Interval;
+import hudson.Extension;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import hudson.model.PeriodicWork;
+import jenkins.model.Jenkins;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static java.util.concurrent.TimeUnit.MINUTES;
+
+/**
+ * An extension regularly writing a snapshot of the GitLab caches to JENKINS_HOME and loading it at startup.
+ *
+ * This lets the caches start warm after a restart instead of every user triggering requests against GitLab at once.
+ * A snapshot is only loaded for the GitLab server it was retrieved from and if it is younger than the maximum
+ * snapshot age, and the loaded data expires once it is older than the maximum age counted from when the snapshot was
+ * written.
+ *
+ * @author Emil Nilsson
+ */
+@Extension
+public final class CacheSnapshotPersistence extends PeriodicWork {
+    /** The name of the snapshot file in JENKINS_HOME. */
+    private static final String SNAPSHOT_FILE_NAME = "gitlab-auth-cache.snapshot";
+
+    /**
+     * The maximum age of loaded data unless the cache duration is longer.
+     *
+     * This is how stale data may be right after a restart, long enough for a normal restart to keep the snapshot even
+     * with the default cache duration of a minute.
+     */
+    private static final Interval MAX_SNAPSHOT_AGE = new Interval(15, MINUTES);
+
+    /** The interval between writing snapshots, so a snapshot younger than the maximum age usually exists. */
+    private static final Interval SNAPSHOT_PERIOD = new Interval(5, MINUTES);
+
+    /** The logger for the class. */
+    private static final Logger LOGGER = Logger.getLogger(CacheSnapshotPersistence.class.getName());
+
+    @Override
+    public long getRecurrencePeriod() {
+        // duration has to be in ms
+        return SNAPSHOT_PERIOD.toMilliseconds();
+    }
+
+    /**
+     * Gets the maximum age of loaded data for a cache duration.
+     *
+     * The cache duration is used if it's longer, so loaded data never expires sooner than data retrieved from GitLab.
+     *
+     * @param cacheDuration the cache duration
+     * @return the maximum age in milliseconds
+     */
+    /* package */ static long getMaxSnapshotAge(Interval cacheDuration) {
+        return Math.max(cacheDuration.toMilliseconds(), MAX_SNAPSHOT_AGE.toMilliseconds());
+    }
+
+    @Override
+    protected void doRun() throws Exception {
+        // nothing has been cached if GitLab isn't configured
+        if (!GitLabConfiguration.isApiConfigured()) {
+            return;
+        }
+
+        CacheSnapshot snapshot = GitLab.createCacheSnapshot();
+        if (!snapshot.isEmpty()) {
+            try {
+                snapshot.writeTo(getSnapshotFile(), getServerUrl());
+                LOGGER.fine("Wrote snapshot of GitLab caches with " + snapshot.getGroupMembers().size() + " groups");
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to write snapshot of GitLab caches", e);
+            }
+        }
+    }
+
+    /**
+     * Loads the latest snapshot into the GitLab caches unless it is too old or of another GitLab server.
+     */
+    @Initializer(after = InitMilestone.EXTENSIONS_AUGMENTED)
+    public static void loadSnapshot() {
+        // nothing can be loaded without knowing which server is configured
+        if (!GitLabConfiguration.isApiConfigured()) {
+            return;
+        }
+        // make sure the cache settings have been applied before populating the caches
+        GitLabAuthConfiguration.getInstance();
+        long maxAge = getMaxSnapshotAge(GitLabAuthConfiguration.getCacheDuration());
+
+        File file = getSnapshotFile();
+        try {
+            CacheSnapshot snapshot = CacheSnapshot.readFrom(file, getServerUrl(), maxAge, System.currentTimeMillis());
+
+            if (snapshot != null) {
+                GitLab.loadCacheSnapshot(snapshot, maxAge);
+                LOGGER.info("Loaded snapshot of GitLab caches with " + snapshot.getGroupMembers().size() + " groups");
+            } else if (file.exists()) {
+                LOGGER.info("Discarded snapshot of GitLab caches: too old, of another server or unknown format");
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to read snapshot of GitLab caches", e);
+        }
+    }
+
+    /**
+     * Gets the URL of the configured GitLab server.
+     *
+     * @return the URL
+     */
+    private static String getServerUrl() {
+        return GitLabConfiguration.getApiClient().getHost();
+    }
+
+    /**
+     * Gets the snapshot file.
+     *
+     * @return the file
+     */
+    private static File getSnapshotFile() {
+        return new File(Jenkins.getInstance().getRootDir(), SNAPSHOT_FILE_NAME);
+    }
+}
@@ -0,0 +1,286 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Andreas Alanko, Emil Nilsson, Sony Mobile Communications AB.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.sonymobile.jenkins.plugins.gitlab.gitlabauth.cache;
+
+import com.google.common.cache.CacheStats;
+import net.sf.json.JSONObject;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Statistics for one of the GitLab caches at a point in time.
+ *
+ * @author Emil Nilsson
+ */
+public final class CacheStatistics {
+    /** The name of the cache. */
+    private final String name;
+
+    /** The approximate number of entries in the cache. */
+    private final long size;
+
+    /** The statistics recorded by the cache. */
+    private final CacheStats stats;
+
+    /** The estimated median load latency in milliseconds. */
+    private final double latencyMedianMillis;
+
+    /** The estimated 90th percentile load latency in milliseconds. */
+    private final double latency90thMillis;
+
+    /** The estimated 99th percentile load latency in milliseconds. */
+    private final double latency99thMillis;
+
+    /** The highest load latency in milliseconds. */
+    private final double latencyMaxMillis;
+
+    /** The number of keys currently known to be missing. */
+    private final long missingKeyCount;
+
+    /** The number of keys recorded as missing. */
+    private final long recordedMissCount;
+
+    /** The number of lookups of missing keys answered without calling the API. */
+    private final long savedApiCallCount;
+
+    /**
+     * Creates cache statistics for a cache without a negative result cache.
+     *
+     * @param name    the name of the cache
+     * @param size    the approximate number of entries in the cache
+     * @param stats   the statistics recorded by the cache
+     * @param latency the recorded load latencies
+     */
+    public CacheStatistics(String name, long size, CacheStats stats, LatencyRecorder latency) {
+        this(name, size, stats, latency, null);
+    }
+
+    /**
+     * Creates cache statistics.
+     *
+     * @param name    the name of the cache
+     * @param size    the approximate number of entries in the cache
+     * @param stats   the statistics recorded by the cache
+     * @param latency the recorded load latencies
+     * @param missing the cache remembering keys missing from the cache or null if there is none
+     */
+    public CacheStatistics(String name, long size, CacheStats stats, LatencyRecorder latency,
+            NegativeResultCache<?> missing) {
+        this.name = name;
+        this.size = size;
+        this.stats = stats;
+        latencyMedianMillis = latency.getPercentileMillis(50);
+        latency90thMillis = latency.getPercentileMillis(90);
+        latency99thMillis = latency.getPercentileMillis(99);
+        latencyMaxMillis = latency.getMaxMillis();
+        if (missing != null) {
+            missingKeyCount = missing.size();
+            recordedMissCount = missing.getRecordedMisses();
+            savedApiCallCount = missing.getSavedApiCalls();
+        } else {
+            missingKeyCount = 0;
+            recordedMissCount = 0;
+            savedApiCallCount = 0;
+        }
+    }
+
+    /**
+     * Returns the name of the cache.
+     *
+     * @return the name of the cache
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the approximate number of entries in the cache.
+     *
+     * @return the approximate number of entries in the cache
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the number of lookups returning a cached value.
+     *
+     * @return the number of lookups returning a cached value
+     */
+    public long getHitCount() {
+        return stats.hitCount();
+    }
+
+    /**
+     * Returns the number of lookups requiring a load.
+     *
+     * @return the number of lookups requiring a load
+     */
+    public long getMissCount() {
+        return stats.missCount();
+    }
+
+    /**
+     * Returns the ratio of lookups returning a cached value, 1.0 if there were no lookups.
+     *
+     * @return the ratio of lookups returning a cached value, 1.0 if there were no lookups
+     */
+    public double getHitRate() {
+        return stats.hitRate();
+    }
+
+    /**
+     * Returns the number of successful loads.
+     *
+     * @return the number of successful loads
+     */
+    public long getLoadSuccessCount() {
+        return stats.loadSuccessCount();
+    }
+
+    /**
+     * Returns the number of loads throwing an exception, including missing users and groups.
+     *
+     * @return the number of loads throwing an exception, including missing users and groups
+     */
+    public long getLoadExceptionCount() {
+        return stats.loadExceptionCount();
+    }
+
+    /**
+     * Returns the average load time in milliseconds.
+     *
+     * @return the average load time in milliseconds
+     */
+    public double getAverageLoadMillis() {
+        return stats.averageLoadPenalty() / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Returns the number of entries evicted from the cache.
+     *
+     * @return the number of entries evicted from the cache
+     */
+    public long getEvictionCount() {
+        return stats.evictionCount();
+    }
+
+    /**
+     * Returns the estimated median load latency in milliseconds.
+     *
+     * @return the estimated median load latency in milliseconds
+     */
+    public double getLatencyMedianMillis() {
+        return latencyMedianMillis;
+    }
+
+    /**
+     * Returns the estimated 90th percentile load latency in milliseconds.
+     *
+     * @return the estimated 90th percentile load latency in milliseconds
+     */
+    public double getLatency90thMillis() {
+        return latency90thMillis;
+    }
+
+    /**
+     * Returns the estimated 99th percentile load latency in milliseconds.
+     *
+     * @return the estimated 99th percentile load latency in milliseconds
+     */
+    public double getLatency99thMillis() {
+        return latency99thMillis;
+    }
+
+    /**
+     * Returns the highest load latency in milliseconds.
+     *
+     * @return the highest load latency in milliseconds
+     */
+    public double getLatencyMaxMillis() {
+        return latencyMaxMillis;
+    }
+
+    /**
+     * Returns the number of keys currently known to be missing.
+     *
+     * @return the number of keys currently known to be missing
+     */
+    public long getMissingKeyCount() {
+        return missingKeyCount;
+    }
+
+    /**
+     * Returns the number of keys recorded as missing.
+     *
+     * @return the number of keys recorded as missing
+     */
+    public long getRecordedMissCount() {
+        return recordedMissCount;
+    }
+
+    /**
+     * Returns the number of lookups of missing keys answered without calling the API.
+     *
+     * @return the number of lookups of missing keys answered without calling the API
+     */
+    public long getSavedApiCallCount() {
+        return savedApiCallCount;
+    }
+
+    /**
+     * Converts the statistics to JSON.
+     *
+     * @return a JSON object
+     */
+    public JSONObject toJSON() {
+        JSONObject latency = new JSONObject()
+                .element("p50", latencyMedianMillis)
+                .element("p90", latency90thMillis)
+                .element("p99", latency99thMillis)
+                .element("max", latencyMaxMillis);
+
+        return new JSONObject()
+                .element("name", name)
+                .element("size", size)
+                .element("hitCount", getHitCount())
+                .element("missCount", getMissCount())
+                .element("hitRate", getHitRate())
+                .element("loadSuccessCount", getLoadSuccessCount())
+                .element("loadExceptionCount", getLoadExceptionCount())
+                .element("averageLoadMillis", getAverageLoadMillis())
+                .element("evictionCount", getEvictionCount())
+                .element("missingKeyCount", missingKeyCount)
+                .element("recordedMissCount", recordedMissCount)
+                .element("savedApiCallCount", savedApiCallCount)
+                .element("loadLatencyMillis", latency);
+    }
+
+    @Override
+    public String toString() {
+        return name + ": " + stats + ", size=" + size;
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Andreas Alanko, Emil Nilsson, Sony Mobile Communications AB.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.sonymobile.jenkins.plugins.gitlab.gitlabauth.cache;
+
+import java.util.List;
+
+/**
+ * Management interface for the GitLab caches exposed through JMX.
+ *
+ * @author Emil Nilsson
+ */
+public interface GitLabCacheMXBean {
+    /**
+     * Gets statistics for the user, group members and groups caches.
+     *
+     * The statistics include the users and groups known to be missing from GitLab.
+     *
+     * @return a list of statistics, one for each cache
+     */
+    List<CacheStatistics> getCacheStatistics();
+
+    /**
+     * Discards all cached data for a user.
+     *
+     * @param userId ID of the user
+     */
+    void invalidateUser(int userId);
+
+    /**
+     * Discards the cached members of a group.
+     *
+     * @param groupId ID of the group
+     */
+    void invalidateGroup(int groupId);
+
+    /**
+     * Discards all cached data.
+     */
+    void invalidateAll();
+}
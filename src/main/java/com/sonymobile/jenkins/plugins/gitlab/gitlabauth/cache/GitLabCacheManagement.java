@@ -0,0 +1,86 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Andreas Alanko, Emil Nilsson, Sony Mobile Communications AB.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.sonymobile.jenkins.plugins.gitlab.gitlabauth.cache;
+
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.GitLab;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * JMX management bean for the GitLab caches delegating to {@link GitLab}.
+ *
+ * @author Emil Nilsson
+ */
+public class GitLabCacheManagement implements GitLabCacheMXBean {
+    /** The name the bean is registered with. */
+    public static final String OBJECT_NAME = "com.sonymobile.jenkins.plugins.gitlab:type=GitLabCache";
+
+    /** The logger for the class. */
+    private static final Logger LOGGER = Logger.getLogger(GitLabCacheManagement.class.getName());
+
+    public List<CacheStatistics> getCacheStatistics() {
+        return GitLab.getCacheStatistics();
+    }
+
+    public void invalidateUser(int userId) {
+        GitLab.invalidateUser(userId);
+    }
+
+    public void invalidateGroup(int groupId) {
+        GitLab.invalidateGroup(groupId);
+    }
+
+    public void invalidateAll() {
+        GitLab.invalidateAll();
+    }
+
+    /**
+     * Registers the management bean with the platform MBean server.
+     */
+    @Initializer(after = InitMilestone.PLUGINS_STARTED)
+    public static void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+
+            // replace any bean left from a previous instance of the plugin
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(new GitLabCacheManagement(), name);
+        } catch (JMException e) {
+            LOGGER.log(Level.WARNING, "Failed to register the GitLab cache management bean", e);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Andreas Alanko, Emil Nilsson, Sony Mobile Communications AB.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.sonymobile.jenkins.plugins.gitlab.gitlabauth.cache;
+
+import com.google.common.cache.CacheLoader;
+
+/**
+ * A cache loader recording the latency of every load.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ * @author Emil Nilsson
+ */
+public class LatencyRecordingCacheLoader<K, V> extends CacheLoader<K, V> {
+    /** The loader performing the actual loading. */
+    private final CacheLoader<K, V> loader;
+
+    /** The recorder for the load latencies. */
+    private final LatencyRecorder recorder;
+
+    /**
+     * Creates a latency recording cache loader.
+     *
+     * @param loader   the loader performing the actual loading
+     * @param recorder the recorder for the load latencies
+     */
+    public LatencyRecordingCacheLoader(CacheLoader<K, V> loader, LatencyRecorder recorder) {
+        this.loader = loader;
+        this.recorder = recorder;
+    }
+
+    @Override
+    public V load(K key) throws Exception {
+        long start = System.nanoTime();
+        try {
+            return loader.load(key);
+        } finally {
+            // failed loads are recorded as well as they are just as expensive
+            recorder.record(System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Andreas Alanko, Emil Nilsson, Sony Mobile Communications AB.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.sonymobile.jenkins.plugins.gitlab.gitlabauth.cache;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A cache remembering keys for which the GitLab API reported that nothing was found.
+ *
+ * A {@link com.google.common.cache.LoadingCache} never caches failed loads, so lookups of deleted users or groups
+ * would otherwise always reach the API. The cache keeps track of how many API calls it has saved.
+ *
+ * @param <K> the key type
+ * @author Emil Nilsson
+ */
+public class NegativeResultCache<K> {
+    /** The keys known to be missing. */
+    private final Cache<K, Boolean> missingKeys;
+
+    /** The number of lookups answered by the cache instead of the API. */
+    private final AtomicLong savedApiCalls = new AtomicLong();
+
+    /** The number of keys recorded as missing. */
+    private final AtomicLong recordedMisses = new AtomicLong();
+
+    /**
+     * Creates a negative result cache.
+     *
+     * @param ticker      the ticker used by the cache
+     * @param duration    the duration in milliseconds before a key is no longer considered missing
+     * @param maximumSize the maximum number of keys to remember
+     */
+    public NegativeResultCache(Ticker ticker, long duration, long maximumSize) {
+        missingKeys = CacheBuilder.newBuilder()
+                .ticker(ticker)
+                .expireAfterWrite(duration, TimeUnit.MILLISECONDS)
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    /**
+     * Checks whether a key is known to be missing.
+     *
+     * Each key found counts as a saved API call.
+     *
+     * @param key the key
+     * @return true if the key is known to be missing
+     */
+    public boolean isMissing(K key) {
+        if (missingKeys.getIfPresent(key) != null) {
+            savedApiCalls.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Records a key as missing.
+     *
+     * @param key the key
+     */
+    public void markMissing(K key) {
+        missingKeys.put(key, Boolean.TRUE);
+        recordedMisses.incrementAndGet();
+    }
+
+    /**
+     * Forgets that a key is missing.
+     *
+     * @param key the key
+     */
+    public void invalidate(K key) {
+        missingKeys.invalidate(key);
+    }
+
+    /**
+     * Forgets all missing keys.
+     */
+    public void invalidateAll() {
+        missingKeys.invalidateAll();
+    }
+
+    /**
+     * Gets the number of lookups answered by the cache instead of the API.
+     *
+     * @return the number of saved API calls
+     */
+    public long getSavedApiCalls() {
+        return savedApiCalls.get();
+    }
+
+    /**
+     * Gets the number of keys recorded as missing.
+     *
+     * @return the number of recorded misses
+     */
+    public long getRecordedMisses() {
+        return recordedMisses.get();
+    }
+
+    /**
+     * Gets the number of keys currently known to be missing.
+     *
+     * @return the number of keys
+     */
+    public long size() {
+        return missingKeys.size();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d missing, %d recorded, %d API calls saved",
+                size(), getRecordedMisses(), getSavedApiCalls());
+    }
+}
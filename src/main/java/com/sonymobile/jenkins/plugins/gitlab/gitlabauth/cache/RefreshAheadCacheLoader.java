@@ -0,0 +1,131 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Andreas Alanko, Emil Nilsson, Sony Mobile Communications AB.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.sonymobile.jenkins.plugins.gitlab.gitlabauth.cache;
+
+import com.google.common.cache.CacheLoader;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A cache loader reloading entries in the background.
+ *
+ * When a cache built with {@code refreshAfterWrite} refreshes an entry the reload is scheduled on a small shared
+ * executor after a random delay, and the cache keeps serving the previous value until the reload finishes. The random
+ * delay spreads out reloads of entries written at the same time so they don't all turn over in the same instant.
+ *
+ * If too many reloads are already pending the entry is reloaded in the requesting thread instead.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ * @author Emil Nilsson
+ */
+public class RefreshAheadCacheLoader<K, V> extends CacheLoader<K, V> {
+    /** The number of threads performing background reloads. */
+    private static final int RELOAD_THREADS = 2;
+
+    /** The maximum number of pending background reloads. */
+    private static final int MAX_PENDING_RELOADS = 64;
+
+    /** The executor shared by all background reloads. */
+    private static final ScheduledExecutorService executor = new ScheduledThreadPoolExecutor(RELOAD_THREADS,
+            new ThreadFactoryBuilder().setNameFormat("GitLab cache refresh %d").setDaemon(true).build());
+
+    /** The number of pending background reloads. */
+    private static final AtomicInteger pendingReloads = new AtomicInteger();
+
+    /** Random generator for the reload delays. */
+    private static final Random random = new Random();
+
+    /** The loader performing the actual loading. */
+    private final CacheLoader<K, V> loader;
+
+    /** The maximum random delay before a reload in milliseconds. */
+    private final long maxJitter;
+
+    /**
+     * Creates a refreshing cache loader.
+     *
+     * @param loader    the loader performing the actual loading
+     * @param maxJitter the maximum random delay before a reload in milliseconds
+     */
+    public RefreshAheadCacheLoader(CacheLoader<K, V> loader, long maxJitter) {
+        this.loader = loader;
+        this.maxJitter = maxJitter;
+    }
+
+    @Override
+    public V load(K key) throws Exception {
+        return loader.load(key);
+    }
+
+    @Override
+    public ListenableFuture<V> reload(final K key, V oldValue) throws Exception {
+        if (pendingReloads.incrementAndGet() > MAX_PENDING_RELOADS) {
+            pendingReloads.decrementAndGet();
+            // too many reloads in flight, reload in the requesting thread
+            return super.reload(key, oldValue);
+        }
+
+        ListenableFutureTask<V> task = ListenableFutureTask.create(new Callable<V>() {
+            public V call() throws Exception {
+                try {
+                    return loader.load(key);
+                } finally {
+                    pendingReloads.decrementAndGet();
+                }
+            }
+        });
+
+        try {
+            executor.schedule(task, nextDelay(), TimeUnit.MILLISECONDS);
+            return task;
+        } catch (RejectedExecutionException e) {
+            pendingReloads.decrementAndGet();
+            return super.reload(key, oldValue);
+        }
+    }
+
+    /**
+     * Gets a random delay for the next reload.
+     *
+     * @return the delay in milliseconds
+     */
+    private long nextDelay() {
+        if (maxJitter <= 0) {
+            return 0;
+        }
+        return (long)(random.nextDouble() * maxJitter);
+    }
+}
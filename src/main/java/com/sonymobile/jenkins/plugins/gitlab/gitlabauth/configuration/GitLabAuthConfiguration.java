@@ -25,9 +25,12 @@
 
 package com.sonymobile.jenkins.plugins.gitlab.gitlabauth.configuration;
 
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.GitLab;
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.cache.CacheSettings;
 import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.time.Interval;
 import hudson.Extension;
 import hudson.util.FormValidation;
+import hudson.util.Secret;
 import jenkins.model.GlobalConfiguration;
 import net.sf.json.JSONObject;
 import org.kohsuke.stapler.QueryParameter;
@@ -59,11 +62,27 @@ public class GitLabAuthConfiguration extends GlobalConfiguration {
     /** Whether to use automatic folder synchronization. */
     private boolean autoCreateFolders = false;
 
+    /** The number of slices the groups are split into to spread the synchronization over the period. */
+    private int synchronizationSlices = 1;
+
+    /** The duration before cached GitLab data expires. */
+    private Interval cacheDuration = CacheSettings.DEFAULT_EXPIRY_DURATION;
+
+    /** Whether cached GitLab data should be refreshed in the background before it expires. */
+    private boolean refreshAheadCaches = false;
+
+    /** The duration before missing GitLab users and groups are looked up again. */
+    private Interval negativeCacheDuration = CacheSettings.DEFAULT_NEGATIVE_EXPIRY_DURATION;
+
+    /** The secret token GitLab system hooks have to send, or null if system hooks aren't accepted. */
+    private Secret systemHookToken;
+
     /**
      * Creates a configuration page and loads any previous settings saved by Jenkins to this object.
      */
     public GitLabAuthConfiguration() {
         load();
+        applyCacheSettings();
     }
 
     /**
@@ -74,15 +93,37 @@ public class GitLabAuthConfiguration extends GlobalConfiguration {
     @Override
     public boolean configure(StaplerRequest req, JSONObject formData) throws FormException {
         String periodDurationInput = formData.getString("periodDuration");
+        String cacheDurationInput = formData.getString("cacheDuration");
+        String negativeCacheDurationInput = formData.getString("negativeCacheDuration");
         try {
             periodDuration = Interval.parseInterval(periodDurationInput, DEFAULT_PERIOD_TIME_UNIT);
-            autoCreateFolders = formData.getBoolean("autoCreateFolders");
-
-            save();
-            return true;
         } catch (IllegalArgumentException e) {
             throw new FormException("Invalid interval: \"" + periodDurationInput + "\"", e, "periodDuration");
         }
+        try {
+            cacheDuration = Interval.parseInterval(cacheDurationInput, DEFAULT_PERIOD_TIME_UNIT);
+        } catch (IllegalArgumentException e) {
+            throw new FormException("Invalid interval: \"" + cacheDurationInput + "\"", e, "cacheDuration");
+        }
+        try {
+            negativeCacheDuration = Interval.parseInterval(negativeCacheDurationInput, DEFAULT_PERIOD_TIME_UNIT);
+        } catch (IllegalArgumentException e) {
+            throw new FormException("Invalid interval: \"" + negativeCacheDurationInput + "\"", e,
+                    "negativeCacheDuration");
+        }
+        int synchronizationSlicesInput = formData.optInt("synchronizationSlices", 1);
+        if (synchronizationSlicesInput < 1) {
+            throw new FormException("Invalid number of slices: " + synchronizationSlicesInput,
+                    "synchronizationSlices");
+        }
+        synchronizationSlices = synchronizationSlicesInput;
+        autoCreateFolders = formData.getBoolean("autoCreateFolders");
+        refreshAheadCaches = formData.getBoolean("refreshAheadCaches");
+        systemHookToken = Secret.fromString(formData.optString("systemHookToken"));
+
+        save();
+        applyCacheSettings();
+        return true;
     }
 
     /**
@@ -101,6 +142,49 @@ public class GitLabAuthConfiguration extends GlobalConfiguration {
         }
     }
 
+    /**
+     * Validates the number of synchronization slices input.
+     *
+     * @param synchronizationSlices the number of slices input from the form
+     * @return ok if the form input was valid
+     */
+    public FormValidation doCheckSynchronizationSlices(@QueryParameter String synchronizationSlices) {
+        try {
+            if (Integer.parseInt(synchronizationSlices.trim()) >= 1) {
+                return FormValidation.ok();
+            }
+        } catch (NumberFormatException e) {
+            // handled below
+        }
+        return FormValidation.error("Invalid number of slices: \"%s\"", synchronizationSlices);
+    }
+
+    /**
+     * Validates the cache duration input.
+     *
+     * @param cacheDuration the cache duration input from the form
+     * @return ok if the form input was valid
+     */
+    public FormValidation doCheckCacheDuration(@QueryParameter String cacheDuration) {
+        try {
+            // try to parse the input
+            Interval.parseInterval(cacheDuration, DEFAULT_PERIOD_TIME_UNIT);
+            return FormValidation.ok();
+        } catch (IllegalArgumentException e) {
+            return FormValidation.error("Invalid interval: \"%s\"", cacheDuration);
+        }
+    }
+
+    /**
+     * Validates the negative cache duration input.
+     *
+     * @param negativeCacheDuration the negative cache duration input from the form
+     * @return ok if the form input was valid
+     */
+    public FormValidation doCheckNegativeCacheDuration(@QueryParameter String negativeCacheDuration) {
+        return doCheckCacheDuration(negativeCacheDuration);
+    }
+
     /**
      * Returns the period duration for automatic synchronization.
      *
@@ -111,6 +195,19 @@ public class GitLabAuthConfiguration extends GlobalConfiguration {
         return instance != null ? instance.periodDuration : DEFAULT_PERIOD_DURATION;
     }
 
+    /**
+     * Returns the number of slices the groups are split into for automatic synchronization.
+     *
+     * Each synchronization only processes one slice, so all groups are processed once per period.
+     *
+     * @return the number of slices, 1 if the groups aren't split
+     */
+    public static int getSynchronizationSlices() {
+        GitLabAuthConfiguration instance = getInstance();
+        // missing in configurations saved before slicing was added
+        return instance != null ? Math.max(instance.synchronizationSlices, 1) : 1;
+    }
+
     /**
      * Checks if folders should be created automatically.
      *
@@ -124,6 +221,72 @@ public class GitLabAuthConfiguration extends GlobalConfiguration {
         return instance != null ? instance.autoCreateFolders : false;
     }
 
+    /**
+     * Returns the duration before cached GitLab data expires.
+     *
+     * @return the cache duration interval
+     */
+    public static Interval getCacheDuration() {
+        GitLabAuthConfiguration instance = getInstance();
+        return instance != null && instance.cacheDuration != null
+                ? instance.cacheDuration : CacheSettings.DEFAULT_EXPIRY_DURATION;
+    }
+
+    /**
+     * Checks if cached GitLab data should be refreshed in the background before it expires.
+     *
+     * @return true if the caches should be refreshed ahead
+     */
+    public static boolean getRefreshAheadCaches() {
+        GitLabAuthConfiguration instance = getInstance();
+        return instance != null ? instance.refreshAheadCaches : false;
+    }
+
+    /**
+     * Returns the duration before missing GitLab users and groups are looked up again.
+     *
+     * @return the negative cache duration interval
+     */
+    public static Interval getNegativeCacheDuration() {
+        GitLabAuthConfiguration instance = getInstance();
+        return instance != null && instance.negativeCacheDuration != null
+                ? instance.negativeCacheDuration : CacheSettings.DEFAULT_NEGATIVE_EXPIRY_DURATION;
+    }
+
+    /**
+     * Returns the secret token GitLab system hooks have to send.
+     *
+     * @return the token or null if system hooks aren't accepted
+     */
+    public static Secret getSystemHookToken() {
+        GitLabAuthConfiguration instance = getInstance();
+        if (instance == null || instance.systemHookToken == null
+                || instance.systemHookToken.getPlainText().isEmpty()) {
+            return null;
+        }
+        return instance.systemHookToken;
+    }
+
+    /**
+     * Returns the cache settings for this configuration.
+     *
+     * @return the cache settings
+     */
+    private CacheSettings getCacheSettings() {
+        Interval duration = cacheDuration != null ? cacheDuration : CacheSettings.DEFAULT_EXPIRY_DURATION;
+        Interval negativeDuration = negativeCacheDuration != null
+                ? negativeCacheDuration : CacheSettings.DEFAULT_NEGATIVE_EXPIRY_DURATION;
+        return new CacheSettings(duration, refreshAheadCaches, negativeDuration,
+                CacheSettings.DEFAULT_NEGATIVE_MAXIMUM_SIZE);
+    }
+
+    /**
+     * Applies the configured cache settings to the GitLab caches.
+     */
+    private void applyCacheSettings() {
+        GitLab.configureCaches(getCacheSettings());
+    }
+
     /**
      * Returns the singleton instance of this class.
      *
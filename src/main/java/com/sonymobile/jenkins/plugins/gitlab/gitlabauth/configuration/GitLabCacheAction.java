@@ -0,0 +1,93 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Andreas Alanko, Emil Nilsson, Sony Mobile Communications AB.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.sonymobile.jenkins.plugins.gitlab.gitlabauth.configuration;
+
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.GitLab;
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.acl.AclMetrics;
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.cache.CacheStatistics;
+import hudson.Extension;
+import hudson.model.RootAction;
+import jenkins.model.Jenkins;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+import java.io.IOException;
+
+/**
+ * Exposes statistics for the GitLab caches and ACL evaluation as JSON for administrators.
+ *
+ * The statistics are available at {@code JENKINS_URL/gitlab-cache/}.
+ *
+ * @author Emil Nilsson
+ */
+@Extension
+public class GitLabCacheAction implements RootAction {
+    /**
+     * No icon as the action isn't shown in the side menu bar.
+     */
+    public String getIconFileName() {
+        return null;
+    }
+
+    /**
+     * The display name linked to this RootAction.
+     */
+    public String getDisplayName() {
+        return "GitLab Cache Statistics";
+    }
+
+    /**
+     * The URL name used to access the statistics.
+     */
+    public String getUrlName() {
+        return "gitlab-cache";
+    }
+
+    /**
+     * Writes the cache statistics as JSON.
+     *
+     * @param request  the stapler request
+     * @param response the stapler response
+     * @throws IOException if writing the response failed
+     */
+    public void doIndex(StaplerRequest request, StaplerResponse response) throws IOException {
+        Jenkins.getInstance().checkPermission(Jenkins.ADMINISTER);
+
+        JSONArray caches = new JSONArray();
+        for (CacheStatistics statistics : GitLab.getCacheStatistics()) {
+            caches.add(statistics.toJSON());
+        }
+
+        JSONObject result = new JSONObject()
+                .element("caches", caches)
+                .element("acl", AclMetrics.toJSON());
+
+        response.setContentType("application/json;charset=UTF-8");
+        response.getWriter().print(result.toString(2));
+    }
+}
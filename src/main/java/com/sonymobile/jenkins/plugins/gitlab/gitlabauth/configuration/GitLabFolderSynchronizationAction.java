@@ -0,0 +1,143 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Andreas Alanko, Emil Nilsson, Sony Mobile Communications AB.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.sonymobile.jenkins.plugins.gitlab.gitlabauth.configuration;
+
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.folder.FolderSynchronizationProgress;
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.folder.ScheduledGroupFolderSynchronization;
+import hudson.Extension;
+import hudson.model.RootAction;
+import jenkins.model.Jenkins;
+import net.sf.json.JSONNull;
+import net.sf.json.JSONObject;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Lets administrators follow, start and cancel the synchronization of GitLab group folders.
+ *
+ * The progress is available as JSON at {@code JENKINS_URL/gitlab-folder-sync/}, a synchronization is started by
+ * posting to {@code sync} and cancelled by posting to {@code cancel}.
+ *
+ * @author Emil Nilsson
+ */
+@Extension
+public class GitLabFolderSynchronizationAction implements RootAction {
+    /**
+     * No icon as the action isn't shown in the side menu bar.
+     */
+    public String getIconFileName() {
+        return null;
+    }
+
+    /**
+     * The display name linked to this RootAction.
+     */
+    public String getDisplayName() {
+        return "GitLab Folder Synchronization";
+    }
+
+    /**
+     * The URL name used to access the synchronization.
+     */
+    public String getUrlName() {
+        return "gitlab-folder-sync";
+    }
+
+    /**
+     * Writes the progress of the running or last synchronization as JSON.
+     *
+     * @param request  the stapler request
+     * @param response the stapler response
+     * @throws IOException if writing the response failed
+     */
+    public void doIndex(StaplerRequest request, StaplerResponse response) throws IOException {
+        Jenkins.getInstance().checkPermission(Jenkins.ADMINISTER);
+        writeProgress(response, true);
+    }
+
+    /**
+     * Starts a synchronization of the folders of all groups now unless one already is running.
+     *
+     * Only allowed when folders are created automatically.
+     *
+     * @param request  the stapler request
+     * @param response the stapler response
+     * @throws IOException if writing the response failed
+     */
+    public void doSync(StaplerRequest request, StaplerResponse response) throws IOException {
+        Jenkins.getInstance().checkPermission(Jenkins.ADMINISTER);
+        if (!"POST".equals(request.getMethod())) {
+            response.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+            return;
+        }
+        if (!GitLabAuthConfiguration.getAutoCreateFolders()) {
+            response.sendError(HttpServletResponse.SC_CONFLICT, "Folders aren't created automatically");
+            return;
+        }
+
+        boolean started = ScheduledGroupFolderSynchronization.startSynchronization(true) != null;
+        writeProgress(response, started);
+    }
+
+    /**
+     * Requests the running synchronization to stop.
+     *
+     * @param request  the stapler request
+     * @param response the stapler response
+     * @throws IOException if writing the response failed
+     */
+    public void doCancel(StaplerRequest request, StaplerResponse response) throws IOException {
+        Jenkins.getInstance().checkPermission(Jenkins.ADMINISTER);
+        if (!"POST".equals(request.getMethod())) {
+            response.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+            return;
+        }
+
+        boolean cancelled = ScheduledGroupFolderSynchronization.cancelSynchronization();
+        writeProgress(response, cancelled);
+    }
+
+    /**
+     * Writes the progress of the running or last synchronization.
+     *
+     * @param response the stapler response
+     * @param accepted whether the requested operation was performed
+     * @throws IOException if writing the response failed
+     */
+    private static void writeProgress(StaplerResponse response, boolean accepted) throws IOException {
+        FolderSynchronizationProgress progress = ScheduledGroupFolderSynchronization.getProgress();
+
+        JSONObject result = new JSONObject()
+                .element("accepted", accepted)
+                .element("progress", progress != null ? progress.toJSON() : JSONNull.getInstance());
+
+        response.setContentType("application/json;charset=UTF-8");
+        response.getWriter().print(result.toString(2));
+    }
+}
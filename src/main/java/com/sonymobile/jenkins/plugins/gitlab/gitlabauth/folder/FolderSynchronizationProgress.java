@@ -0,0 +1,236 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Andreas Alanko, Emil Nilsson, Sony Mobile Communications AB.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.sonymobile.jenkins.plugins.gitlab.gitlabauth.folder;
+
+import net.sf.json.JSONObject;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The progress of a group folder synchronization.
+ *
+ * The progress is updated by the synchronization while it runs and can be read from any thread. Cancellation is
+ * cooperative: a requested cancellation is noticed by the synchronization between groups.
+ *
+ * @author Emil Nilsson
+ */
+public final class FolderSynchronizationProgress {
+    /**
+     * The state of a synchronization.
+     */
+    public static enum State {
+        /** The synchronization is running. */
+        RUNNING,
+        /** The synchronization finished. */
+        COMPLETED,
+        /** The synchronization stopped after being cancelled. */
+        CANCELLED,
+        /** The synchronization failed. */
+        FAILED
+    }
+
+    /** The time the synchronization started in milliseconds since the epoch. */
+    private final long startTime = System.currentTimeMillis();
+
+    /** The start of the synchronization in nanoseconds, used to measure the elapsed time. */
+    private final long startNanos = System.nanoTime();
+
+    /** The elapsed time in nanoseconds once the synchronization has stopped. */
+    private volatile long durationNanos = -1L;
+
+    /** The state of the synchronization. */
+    private volatile State state = State.RUNNING;
+
+    /** A message describing why the synchronization failed, or null. */
+    private volatile String message;
+
+    /** Whether cancellation has been requested. */
+    private volatile boolean cancelRequested = false;
+
+    /** The number of groups scanned. */
+    private final AtomicInteger groupsScanned = new AtomicInteger();
+
+    /** The number of folders created. */
+    private final AtomicInteger foldersCreated = new AtomicInteger();
+
+    /** The number of calls made to GitLab while the synchronization ran. */
+    private final AtomicLong apiCalls = new AtomicLong();
+
+    /**
+     * Records that groups have been scanned.
+     *
+     * @param count the number of groups
+     */
+    public void recordGroupsScanned(int count) {
+        groupsScanned.addAndGet(count);
+    }
+
+    /**
+     * Records that a folder has been created.
+     */
+    public void recordFolderCreated() {
+        foldersCreated.incrementAndGet();
+    }
+
+    /**
+     * Records calls made to GitLab.
+     *
+     * @param count the number of calls
+     */
+    public void recordApiCalls(long count) {
+        apiCalls.addAndGet(count);
+    }
+
+    /**
+     * Requests the synchronization to stop.
+     *
+     * @return true if the synchronization was running
+     */
+    public boolean requestCancel() {
+        cancelRequested = true;
+        return isRunning();
+    }
+
+    /**
+     * Checks whether the synchronization should stop.
+     *
+     * @return true if cancellation has been requested
+     */
+    public boolean isCancelRequested() {
+        return cancelRequested;
+    }
+
+    /**
+     * Marks the synchronization as stopped.
+     *
+     * Only the first call has any effect.
+     *
+     * @param state   the final state
+     * @param message a message describing why the synchronization failed, or null
+     */
+    public synchronized void finish(State state, String message) {
+        if (this.state == State.RUNNING) {
+            this.durationNanos = System.nanoTime() - startNanos;
+            this.message = message;
+            this.state = state;
+        }
+    }
+
+    /**
+     * Checks whether the synchronization is running.
+     *
+     * @return true if running
+     */
+    public boolean isRunning() {
+        return state == State.RUNNING;
+    }
+
+    /**
+     * Gets the state of the synchronization.
+     *
+     * @return the state
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Gets the message describing why the synchronization failed.
+     *
+     * @return the message or null
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Gets the time the synchronization started.
+     *
+     * @return the time in milliseconds since the epoch
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Gets the time the synchronization has been running, or ran for if stopped.
+     *
+     * @return the elapsed time in milliseconds
+     */
+    public long getElapsedMillis() {
+        long duration = durationNanos;
+        return TimeUnit.NANOSECONDS.toMillis(duration >= 0 ? duration : System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Gets the number of groups scanned.
+     *
+     * @return the number of groups
+     */
+    public int getGroupsScanned() {
+        return groupsScanned.get();
+    }
+
+    /**
+     * Gets the number of folders created.
+     *
+     * @return the number of folders
+     */
+    public int getFoldersCreated() {
+        return foldersCreated.get();
+    }
+
+    /**
+     * Gets the number of calls made to GitLab while the synchronization ran.
+     *
+     * The calls are the loads of the GitLab caches, including any made for other purposes at the same time, and are
+     * recorded when the synchronization stops.
+     *
+     * @return the number of calls
+     */
+    public long getApiCalls() {
+        return apiCalls.get();
+    }
+
+    /**
+     * Converts the progress to JSON.
+     *
+     * @return a JSON object
+     */
+    public JSONObject toJSON() {
+        return new JSONObject()
+                .element("state", state.name())
+                .element("message", message)
+                .element("cancelRequested", cancelRequested)
+                .element("startTime", startTime)
+                .element("elapsedMillis", getElapsedMillis())
+                .element("groupsScanned", getGroupsScanned())
+                .element("foldersCreated", getFoldersCreated())
+                .element("apiCalls", getApiCalls());
+    }
+}
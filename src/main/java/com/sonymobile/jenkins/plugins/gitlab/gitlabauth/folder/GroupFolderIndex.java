@@ -0,0 +1,279 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Andreas Alanko, Emil Nilsson, Sony Mobile Communications AB.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.sonymobile.jenkins.plugins.gitlab.gitlabauth.folder;
+
+import com.cloudbees.hudson.plugins.folder.Folder;
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.authorization.GitLabFolderAuthorization;
+import hudson.Extension;
+import hudson.model.Item;
+import hudson.model.TopLevelItem;
+import hudson.model.listeners.ItemListener;
+import jenkins.model.Jenkins;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An index of the top level group folders of Jenkins by GitLab group ID.
+ *
+ * The index is built from the items of Jenkins once they have been loaded and is then kept current by an item
+ * listener, so checking if a group has a folder doesn't require scanning all items.
+ *
+ * @author Emil Nilsson
+ */
+public final class GroupFolderIndex {
+    /** The index of the Jenkins instance. */
+    private static final GroupFolderIndex INSTANCE = new GroupFolderIndex();
+
+    /** The group folders by group ID, replaced as a whole when the index is rebuilt. */
+    private volatile ConcurrentMap<Integer, Folder> folders = new ConcurrentHashMap<Integer, Folder>();
+
+    /** The group IDs of the indexed folders, only used while holding the lock of the index. */
+    private Map<Item, Integer> groupIds = new HashMap<Item, Integer>();
+
+    /** Whether the index has been built. */
+    private volatile boolean built = false;
+
+    /**
+     * Creates an empty index.
+     */
+    /* package */ GroupFolderIndex() {
+    }
+
+    /**
+     * Gets the index of the Jenkins instance.
+     *
+     * @return the index
+     */
+    public static GroupFolderIndex getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Checks if a group has a group folder.
+     *
+     * @param groupId the group ID
+     * @return true if a folder exists
+     */
+    public boolean containsGroup(int groupId) {
+        return getIndex().containsKey(groupId);
+    }
+
+    /**
+     * Gets the group folder of a group.
+     *
+     * @param groupId the group ID
+     * @return the folder or null if the group has no folder
+     */
+    public Folder getFolder(int groupId) {
+        return getIndex().get(groupId);
+    }
+
+    /**
+     * Gets the folders of all groups.
+     *
+     * @return a copy of the folders sorted by group ID
+     */
+    public List<Folder> getFolders() {
+        List<Folder> groupFolders = new ArrayList<Folder>();
+        for (Folder folder : new TreeMap<Integer, Folder>(getIndex()).values()) {
+            // skip folders which property has been removed but which haven't been updated yet
+            if (GitLabFolderAuthorization.getFolderProperty(folder) != null) {
+                groupFolders.add(folder);
+            }
+        }
+        return groupFolders;
+    }
+
+    /**
+     * Gets all group folders.
+     *
+     * @return a sorted copy of the group folders by group ID
+     */
+    public SortedMap<Integer, GroupFolderInfo> getGroupFolders() {
+        SortedMap<Integer, GroupFolderInfo> groupFolders = new TreeMap<Integer, GroupFolderInfo>();
+        for (Map.Entry<Integer, Folder> entry : getIndex().entrySet()) {
+            GitLabFolderAuthorization property = GitLabFolderAuthorization.getFolderProperty(entry.getValue());
+            if (property != null) {
+                groupFolders.put(entry.getKey(), new GroupFolderInfo(property));
+            }
+        }
+        return groupFolders;
+    }
+
+    /**
+     * Replaces the contents of the index with the group folders among the items.
+     *
+     * @param items the top level items
+     */
+    /* package */ synchronized void rebuild(Collection<? extends TopLevelItem> items) {
+        ConcurrentMap<Integer, Folder> newFolders = new ConcurrentHashMap<Integer, Folder>();
+        Map<Item, Integer> newGroupIds = new HashMap<Item, Integer>();
+        for (TopLevelItem item : items) {
+            add(item, newFolders, newGroupIds);
+        }
+        // readers never see a partially built index
+        groupIds = newGroupIds;
+        folders = newFolders;
+        built = true;
+    }
+
+    /**
+     * Updates the index for an added or changed top level item.
+     *
+     * @param item the item
+     */
+    /* package */ synchronized void update(TopLevelItem item) {
+        remove(item);
+        add(item, folders, groupIds);
+    }
+
+    /**
+     * Removes a top level item from the index.
+     *
+     * @param item the item
+     */
+    /* package */ synchronized void remove(Item item) {
+        // the group ID of the folder may have changed since it was indexed
+        Integer groupId = groupIds.remove(item);
+        if (groupId != null) {
+            folders.remove(groupId, item);
+        }
+    }
+
+    /**
+     * Adds an item to an index if it's a group folder.
+     *
+     * Folders which property doesn't have a valid group ID aren't group folders of any group.
+     *
+     * @param item     the item
+     * @param folders  the group folders by group ID
+     * @param groupIds the group IDs by folder
+     */
+    private static void add(TopLevelItem item, Map<Integer, Folder> folders, Map<Item, Integer> groupIds) {
+        if (item instanceof Folder) {
+            GitLabFolderAuthorization property = GitLabFolderAuthorization.getFolderProperty((Folder)item);
+            if (property != null && property.getGroupId() > 0) {
+                Folder replaced = folders.put(property.getGroupId(), (Folder)item);
+                if (replaced != null && replaced != item) {
+                    groupIds.remove(replaced);
+                }
+                groupIds.put(item, property.getGroupId());
+            }
+        }
+    }
+
+    /**
+     * Gets the folders by group ID, building the index first if needed.
+     *
+     * @return the group folders by group ID
+     */
+    private Map<Integer, Folder> getIndex() {
+        if (!built) {
+            Jenkins jenkins = Jenkins.getInstance();
+            if (jenkins != null) {
+                rebuild(getAllItems(jenkins));
+            }
+        }
+        return folders;
+    }
+
+    /**
+     * Gets all top level items of Jenkins.
+     *
+     * Unlike {@link Jenkins#getItems()} the items aren't filtered by the permissions of the current user, as the
+     * index is shared by all users.
+     *
+     * @param jenkins the Jenkins instance
+     * @return the items
+     */
+    private static Collection<TopLevelItem> getAllItems(Jenkins jenkins) {
+        return jenkins.getItemMap().values();
+    }
+
+    /**
+     * Keeps the index of the Jenkins instance current when top level items change.
+     */
+    @Extension
+    public static class ItemListenerImpl extends ItemListener {
+        @Override
+        public void onLoaded() {
+            // all items have been loaded
+            INSTANCE.rebuild(getAllItems(Jenkins.getInstance()));
+        }
+
+        @Override
+        public void onCreated(Item item) {
+            updateTopLevelItem(item);
+        }
+
+        @Override
+        public void onCopied(Item src, Item item) {
+            updateTopLevelItem(item);
+        }
+
+        @Override
+        public void onDeleted(Item item) {
+            INSTANCE.remove(item);
+        }
+
+        @Override
+        public void onRenamed(Item item, String oldName, String newName) {
+            updateTopLevelItem(item);
+        }
+
+        @Override
+        public void onLocationChanged(Item item, String oldFullName, String newFullName) {
+            // the item may have been moved out of or into the top level
+            INSTANCE.remove(item);
+            updateTopLevelItem(item);
+        }
+
+        @Override
+        public void onUpdated(Item item) {
+            // the folder property may have been added or removed
+            updateTopLevelItem(item);
+        }
+
+        /**
+         * Updates the index if the item is a top level item.
+         *
+         * @param item the item
+         */
+        private static void updateTopLevelItem(Item item) {
+            if (item instanceof TopLevelItem && item.getParent() instanceof Jenkins) {
+                INSTANCE.update((TopLevelItem)item);
+            }
+        }
+    }
+}
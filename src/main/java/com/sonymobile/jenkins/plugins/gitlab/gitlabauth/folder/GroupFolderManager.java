@@ -26,18 +26,23 @@
 package com.sonymobile.jenkins.plugins.gitlab.gitlabauth.folder;
 
 import com.cloudbees.hudson.plugins.folder.Folder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.sonymobile.gitlab.exceptions.GitLabApiException;
 import com.sonymobile.gitlab.model.GitLabGroupInfo;
 import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.GitLab;
 import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.authorization.GitLabFolderAuthorization;
 import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.exceptions.ItemNameCollisionException;
 
+import hudson.BulkChange;
 import hudson.model.TopLevelItem;
 import hudson.model.TopLevelItemDescriptor;
+import hudson.model.listeners.ItemListener;
+import jenkins.model.DirectlyModifiableTopLevelItemGroup;
 import jenkins.model.Jenkins;
 import jenkins.model.ModifiableTopLevelItemGroup;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
@@ -45,6 +50,14 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
 
 import static org.apache.commons.lang3.StringUtils.join;
 
@@ -54,6 +67,15 @@ import static org.apache.commons.lang3.StringUtils.join;
  * @author Emil Nilsson
  */
 public class GroupFolderManager {
+    /** The maximum number of folders saved in parallel, also the number of new folders saved together. */
+    private static final int MAX_PARALLEL_SAVES = 4;
+
+    /** The executor saving new folders, shared by all managers. */
+    private static final ExecutorService SAVE_EXECUTOR = createSaveExecutor();
+
+    /** The logger for this class. */
+    private static final Logger LOGGER = Logger.getLogger(GroupFolderManager.class.getName());
+
     /**
      * Predicate used to include or exclude groups.
      *
@@ -185,7 +207,24 @@ public class GroupFolderManager {
      */
     public synchronized void createFolders(Collection<GitLabGroupInfo> groups)
             throws GitLabApiException, ItemNameCollisionException, IOException {
-        createUnfilteredFolders(filterGroups(groups));
+        createFolders(groups, new FolderSynchronizationProgress());
+    }
+
+    /**
+     * Creates folders for a collection of GitLab groups, recording the progress.
+     *
+     * Checks if folders already exists before attempting to create a new folder. Stops creating folders if
+     * cancellation is requested through the progress, the folders already created are still saved.
+     *
+     * @param groups   the groups
+     * @param progress the progress of the synchronization
+     * @throws GitLabApiException         if the connection against GitLab failed
+     * @throws ItemNameCollisionException if an item names for new folders already were in use
+     * @throws IOException                if saving to persistent storage failed
+     */
+    public synchronized void createFolders(Collection<GitLabGroupInfo> groups, FolderSynchronizationProgress progress)
+            throws GitLabApiException, ItemNameCollisionException, IOException {
+        createUnfilteredFolders(filterGroups(groups), progress);
     }
 
     /**
@@ -194,6 +233,10 @@ public class GroupFolderManager {
      * @return all group folders
      */
     private Map<Integer, GroupFolderInfo> getUnfilteredFolders() {
+        if (itemGroup instanceof Jenkins) {
+            // the top level group folders are indexed
+            return GroupFolderIndex.getInstance().getGroupFolders();
+        }
         Map<Integer, GroupFolderInfo> folders = new TreeMap<Integer, GroupFolderInfo>();
         for (TopLevelItem item : itemGroup.getItems()) {
             // check if the item is a group folder
@@ -210,24 +253,59 @@ public class GroupFolderManager {
      *
      * This is used to create the included folders after filtering.
      *
-     * @param groups the folders
+     * The folders are created one at a time, but the configuration of each folder is only written once its property
+     * has been added. The configurations are written in parallel in small chunks and the item listeners are notified
+     * of the folders of a chunk once it has been written, so at most a chunk of folders is left unsaved if Jenkins
+     * stops while creating folders.
+     *
+     * @param groups   the folders
+     * @param progress the progress of the synchronization
      */
-    private void createUnfilteredFolders(Collection<GitLabGroupInfo> groups)
+    private void createUnfilteredFolders(Collection<GitLabGroupInfo> groups, FolderSynchronizationProgress progress)
             throws ItemNameCollisionException, IOException {
+        long startTime = System.nanoTime();
+
         // get existing group folders
         Map<Integer, GroupFolderInfo> existingFolders = getUnfilteredFolders();
 
         // groups which item names collide with existing items
         List<String> collidedGroupPaths = new LinkedList<String>();
 
-        for (GitLabGroupInfo group : groups) {
-            try {
-                // only create folders that don't already exist
-                if (!existingFolders.containsKey(group.getId())) {
-                    createFolder(group);
+        // new folders which configuration hasn't been written yet
+        List<Folder> unsavedFolders = new ArrayList<Folder>(MAX_PARALLEL_SAVES);
+        int createdCount = 0;
+
+        try {
+            for (GitLabGroupInfo group : groups) {
+                if (progress.isCancelRequested()) {
+                    LOGGER.info("Creation of group folders cancelled");
+                    break;
                 }
-            } catch (ItemNameCollisionException e) {
-                collidedGroupPaths.add(group.getPath());
+                try {
+                    // only create folders that don't already exist
+                    if (!existingFolders.containsKey(group.getId())) {
+                        unsavedFolders.add(createFolder(group));
+                        createdCount++;
+                        progress.recordFolderCreated();
+                    }
+                } catch (ItemNameCollisionException e) {
+                    collidedGroupPaths.add(group.getPath());
+                }
+                if (unsavedFolders.size() >= MAX_PARALLEL_SAVES) {
+                    try {
+                        saveNewFolders(unsavedFolders);
+                    } finally {
+                        // don't attempt to save the chunk again if saving failed
+                        unsavedFolders.clear();
+                    }
+                }
+            }
+        } finally {
+            if (!unsavedFolders.isEmpty()) {
+                saveNewFolders(unsavedFolders);
+            }
+            if (createdCount > 0) {
+                logThroughput(createdCount, System.nanoTime() - startTime);
             }
         }
 
@@ -238,23 +316,183 @@ public class GroupFolderManager {
     }
 
     /**
-     * Creates a group folder.
+     * Creates a group folder without writing its configuration.
      *
-     * Does not check if a folder already exists for the GitLab group.
+     * Does not check if a folder already exists for the GitLab group. The folder is added to the item group with its
+     * property already in effect, writing its configuration and notifying the item listeners is left to
+     * {@link #saveNewFolders(List)}.
      *
      * @param group the group
+     * @return the folder
      * @throws ItemNameCollisionException if an item name for a new folder already was in use
      * @throws IOException                if saving to persistent storage failed
      */
-    private void createFolder(GitLabGroupInfo group)
+    private Folder createFolder(GitLabGroupInfo group)
             throws ItemNameCollisionException, IOException {
+        if (!(itemGroup instanceof DirectlyModifiableTopLevelItemGroup)) {
+            return createSavedFolder(group);
+        }
+
+        String name = group.getPath();
+        Jenkins.checkGoodName(name);
+        if (itemGroup.getItem(name) != null) {
+            throw new ItemNameCollisionException("Cannot create folder because an item with the name "
+                    + name + " already exists");
+        }
+
+        Folder folder = (Folder)folderDescriptor.newInstance(itemGroup, name);
+        folder.onCreatedFromScratch();
+        addProperty(folder, group);
         try {
-            Folder folder = (Folder)itemGroup.createProject(folderDescriptor, group.getPath(), true);
-            folder.addProperty(new GitLabFolderAuthorization(group.getId()));
+            ((DirectlyModifiableTopLevelItemGroup)itemGroup).add(folder, name);
+        } catch (IllegalArgumentException e) {
+            throw new ItemNameCollisionException("Cannot create folder because an item with the name "
+                    + name + " already exists");
+        }
+
+        if (itemGroup instanceof Jenkins) {
+            GroupFolderIndex.getInstance().update(folder);
+        }
+        return folder;
+    }
+
+    /**
+     * Creates a group folder through an item group which can't be modified directly.
+     *
+     * The item group writes the configuration of the folder when it is created, before the property is added, so
+     * such folders are written twice.
+     *
+     * @param group the group
+     * @return the folder
+     * @throws ItemNameCollisionException if an item name for a new folder already was in use
+     * @throws IOException                if saving to persistent storage failed
+     */
+    private Folder createSavedFolder(GitLabGroupInfo group)
+            throws ItemNameCollisionException, IOException {
+        Folder folder;
+        try {
+            folder = (Folder)itemGroup.createProject(folderDescriptor, group.getPath(), true);
         } catch (IllegalArgumentException e) {
             throw new ItemNameCollisionException("Cannot create folder because an item with the name "
                     + group.getPath() + " already exists");
         }
+
+        addProperty(folder, group);
+
+        if (itemGroup instanceof Jenkins) {
+            // the property isn't yet set when the folder is created
+            GroupFolderIndex.getInstance().update(folder);
+        }
+        return folder;
+    }
+
+    /**
+     * Adds the group folder property to a folder without writing its configuration.
+     *
+     * @param folder the folder
+     * @param group  the group
+     * @throws IOException if adding the property failed
+     */
+    private static void addProperty(Folder folder, GitLabGroupInfo group) throws IOException {
+        BulkChange bulkChange = new BulkChange(folder);
+        try {
+            folder.addProperty(new GitLabFolderAuthorization(group.getId()));
+        } finally {
+            // discard the save, the folder is saved together with the next few new folders
+            bulkChange.abort();
+        }
+    }
+
+    /**
+     * Writes the configurations of new folders and notifies the item listeners of folders not created through the
+     * item group.
+     *
+     * @param folders the folders
+     * @throws IOException if saving any folder failed
+     */
+    private void saveNewFolders(List<Folder> folders) throws IOException {
+        try {
+            saveFolders(folders);
+        } finally {
+            if (itemGroup instanceof DirectlyModifiableTopLevelItemGroup) {
+                // the folders are part of the item group even if saving failed
+                for (Folder folder : folders) {
+                    ItemListener.fireOnCreated(folder);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the configurations of folders, in parallel if there are several folders.
+     *
+     * All folders are attempted to be saved even if saving some of them failed.
+     *
+     * @param folders the folders
+     * @throws IOException if saving any folder failed
+     */
+    private static void saveFolders(List<Folder> folders) throws IOException {
+        if (folders.size() == 1) {
+            folders.get(0).save();
+            return;
+        }
+
+        try {
+            List<Future<Void>> results = new ArrayList<Future<Void>>(folders.size());
+            for (final Folder folder : folders) {
+                results.add(SAVE_EXECUTOR.submit(new Callable<Void>() {
+                    public Void call() throws IOException {
+                        folder.save();
+                        return null;
+                    }
+                }));
+            }
+
+            IOException failure = null;
+            for (Future<Void> result : results) {
+                try {
+                    result.get();
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause() instanceof IOException
+                                ? (IOException)e.getCause() : new IOException(e.getCause());
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while saving group folders");
+        }
+    }
+
+    /**
+     * Creates the executor saving new folders.
+     *
+     * The threads of the executor are stopped when idle.
+     *
+     * @return the executor
+     */
+    private static ExecutorService createSaveExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_PARALLEL_SAVES, MAX_PARALLEL_SAVES,
+                60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactoryBuilder().setNameFormat("GitLab group folder save %d").setDaemon(true).build());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Logs the number of folders created per second.
+     *
+     * @param count         the number of created folders
+     * @param durationNanos the duration of the creation in nanoseconds
+     */
+    private static void logThroughput(int count, long durationNanos) {
+        double seconds = Math.max(durationNanos, 1L) / 1e9;
+        LOGGER.info(String.format("Created %d group folder(s) in %.1f s (%.1f folders/s)",
+                count, seconds, count / seconds));
     }
 
     /**
@@ -75,16 +75,37 @@ public abstract class GroupFolderSynchronizer implements GroupFolderManager.Mana
      * Should be used by a method in concrete subclasses to perform the actual synchronization.
      *
      * @param groups the groups
+     * @return true if all included groups were processed
      * @throws GitLabApiException if the connection against GitLab failed
      */
-    protected void synchronizeGroupFolders(Collection<GitLabGroupInfo> groups) throws GitLabApiException {
+    protected boolean synchronizeGroupFolders(Collection<GitLabGroupInfo> groups) throws GitLabApiException {
+        return synchronizeGroupFolders(groups, new FolderSynchronizationProgress());
+    }
+
+    /**
+     * Synchronizes a collection group folders, recording the progress.
+     *
+     * Groups which item names collide with other items count as processed, as retrying them fails until the items
+     * are renamed or removed.
+     *
+     * @param groups   the groups
+     * @param progress the progress of the synchronization
+     * @return true if all included groups were processed without being cancelled
+     * @throws GitLabApiException if the connection against GitLab failed
+     */
+    protected boolean synchronizeGroupFolders(Collection<GitLabGroupInfo> groups,
+            FolderSynchronizationProgress progress) throws GitLabApiException {
         try {
-            folderManager.createFolders(groups);
+            folderManager.createFolders(groups, progress);
+            return !progress.isCancelRequested();
         } catch (ItemNameCollisionException e) {
+            // the folders of all other groups have been created
             LOGGER.warning(e.getMessage());
+            return !progress.isCancelRequested();
         } catch (IOException e) {
             LOGGER.warning(e.getMessage());
         }
+        return false;
     }
 
     /**
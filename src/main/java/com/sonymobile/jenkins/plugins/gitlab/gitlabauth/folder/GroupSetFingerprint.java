@@ -0,0 +1,153 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Andreas Alanko, Emil Nilsson, Sony Mobile Communications AB.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.sonymobile.jenkins.plugins.gitlab.gitlabauth.folder;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.sonymobile.gitlab.model.GitLabGroupInfo;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * A fingerprint of a set of GitLab groups used to find what changed between two synchronizations.
+ *
+ * The fingerprint contains the path of each group by group ID and a hash of the IDs and paths, so an unchanged set
+ * of groups is detected by comparing the hashes.
+ *
+ * @author Emil Nilsson
+ */
+final class GroupSetFingerprint {
+    /** The fingerprint of an empty set of groups. */
+    static final GroupSetFingerprint EMPTY = new GroupSetFingerprint(Collections.<GitLabGroupInfo>emptyList());
+
+    /** The group paths by group ID. */
+    private final SortedMap<Integer, String> paths = new TreeMap<Integer, String>();
+
+    /** The hash of the group IDs and paths. */
+    private final long hash;
+
+    /**
+     * Creates a fingerprint of a set of groups.
+     *
+     * @param groups the groups
+     */
+    GroupSetFingerprint(Collection<GitLabGroupInfo> groups) {
+        for (GitLabGroupInfo group : groups) {
+            paths.put(group.getId(), group.getPath());
+        }
+
+        // hash the groups in the order of the group IDs
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        for (Map.Entry<Integer, String> entry : paths.entrySet()) {
+            hasher.putInt(entry.getKey());
+            hasher.putString(entry.getValue(), Charsets.UTF_8);
+            // separate the paths
+            hasher.putByte((byte)0);
+        }
+        hash = hasher.hash().asLong();
+    }
+
+    /**
+     * Gets the slice of a group when the groups are split into slices.
+     *
+     * The groups are spread evenly over the slices, and most groups stay in the same slice if the number of slices
+     * changes.
+     *
+     * @param groupId the group ID
+     * @param slices  the number of slices
+     * @return the slice, from 0 to the number of slices exclusive
+     */
+    static int getSlice(int groupId, int slices) {
+        return Hashing.consistentHash(Hashing.murmur3_32().hashInt(groupId), slices);
+    }
+
+    /**
+     * Gets the hash of the group IDs and paths.
+     *
+     * @return the hash
+     */
+    long getHash() {
+        return hash;
+    }
+
+    /**
+     * Checks if the groups are the same as in another fingerprint.
+     *
+     * @param other the other fingerprint
+     * @return true if the group IDs and paths are the same
+     */
+    boolean hasSameGroups(GroupSetFingerprint other) {
+        return hash == other.hash && paths.size() == other.paths.size();
+    }
+
+    /**
+     * Gets the IDs of groups not in a previous fingerprint.
+     *
+     * @param previous the previous fingerprint
+     * @return the group IDs
+     */
+    SortedSet<Integer> getAddedGroupIds(GroupSetFingerprint previous) {
+        SortedSet<Integer> added = new TreeSet<Integer>(paths.keySet());
+        added.removeAll(previous.paths.keySet());
+        return added;
+    }
+
+    /**
+     * Gets the IDs of groups which paths have changed since a previous fingerprint.
+     *
+     * @param previous the previous fingerprint
+     * @return the group IDs
+     */
+    SortedSet<Integer> getRenamedGroupIds(GroupSetFingerprint previous) {
+        SortedSet<Integer> renamed = new TreeSet<Integer>();
+        for (Map.Entry<Integer, String> entry : paths.entrySet()) {
+            String previousPath = previous.paths.get(entry.getKey());
+            if (previousPath != null && !previousPath.equals(entry.getValue())) {
+                renamed.add(entry.getKey());
+            }
+        }
+        return renamed;
+    }
+
+    /**
+     * Gets the IDs of groups in a previous fingerprint but no longer present.
+     *
+     * @param previous the previous fingerprint
+     * @return the group IDs
+     */
+    SortedSet<Integer> getRemovedGroupIds(GroupSetFingerprint previous) {
+        SortedSet<Integer> removed = new TreeSet<Integer>(previous.paths.keySet());
+        removed.removeAll(paths.keySet());
+        return removed;
+    }
+}
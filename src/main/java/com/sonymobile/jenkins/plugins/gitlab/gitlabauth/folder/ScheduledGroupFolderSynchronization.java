@@ -25,20 +25,39 @@
 
 package com.sonymobile.jenkins.plugins.gitlab.gitlabauth.folder;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.sonymobile.gitlab.exceptions.GitLabApiException;
+import com.sonymobile.gitlab.model.GitLabGroupInfo;
 import com.sonymobile.jenkins.plugins.gitlab.gitlabapi.GitLabConfiguration;
 import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.GitLab;
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.cache.CacheStatistics;
 import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.configuration.GitLabAuthConfiguration;
 import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.time.Interval;
 import hudson.Extension;
 import hudson.model.AperiodicWork;
+import hudson.security.ACL;
+import org.acegisecurity.context.SecurityContext;
+import org.acegisecurity.context.SecurityContextHolder;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * An extension regularly synchronizing GitLab group folders.
  *
+ * The synchronizations run on a dedicated thread rather than on the timer shared with other periodic work, and only
+ * one synchronization runs at a time. A synchronization can also be started on demand, cancelled and its progress
+ * followed.
+ *
  * @author Emil Nilsson
  */
 @Extension
@@ -49,6 +68,14 @@ public final class ScheduledGroupFolderSynchronization extends AperiodicWork {
     /** The synchronizer creating folders from GitLab groups. */
     private static final Synchronizer synchronizer = new Synchronizer();
 
+    /** The executor running the synchronizations. */
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("GitLab folder synchronization %d").setDaemon(true).build());
+
+    /** The progress of the running or last synchronization, or null if none has been started. */
+    private static final AtomicReference<FolderSynchronizationProgress> progress =
+            new AtomicReference<FolderSynchronizationProgress>();
+
     /** The logger for the class. */
     private static final Logger LOGGER = Logger.getLogger(ScheduledGroupFolderSynchronization.class.getName());
 
@@ -61,27 +88,124 @@ public final class ScheduledGroupFolderSynchronization extends AperiodicWork {
         return GitLabAuthConfiguration.getAutoCreateFolders();
     }
 
+    /**
+     * Starts a synchronization unless one is already running.
+     *
+     * A full synchronization checks the folders of all groups, while other synchronizations only check the folders of
+     * the new groups and of the next slice if the groups are split into several slices.
+     *
+     * @param full whether to check the folders of all groups
+     * @return the progress of the started synchronization or null if a synchronization already is running
+     */
+    public static FolderSynchronizationProgress startSynchronization(final boolean full) {
+        while (true) {
+            FolderSynchronizationProgress previous = progress.get();
+            if (previous != null && previous.isRunning()) {
+                return null;
+            }
+
+            final FolderSynchronizationProgress started = new FolderSynchronizationProgress();
+            if (progress.compareAndSet(previous, started)) {
+                try {
+                    executor.execute(new Runnable() {
+                        public void run() {
+                            runSynchronization(started, full);
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    started.finish(FolderSynchronizationProgress.State.FAILED, "Could not start synchronization");
+                }
+                return started;
+            }
+        }
+    }
+
+    /**
+     * Requests the running synchronization to stop.
+     *
+     * @return true if a synchronization was running
+     */
+    public static boolean cancelSynchronization() {
+        FolderSynchronizationProgress current = progress.get();
+        return current != null && current.requestCancel();
+    }
+
+    /**
+     * Gets the progress of the running or last synchronization.
+     *
+     * @return the progress or null if no synchronization has been started
+     */
+    public static FolderSynchronizationProgress getProgress() {
+        return progress.get();
+    }
+
     /**
      * Synchronizes the GitLab folders.
      *
      * Synchronization is only attempted if GitLab is configured.
      *
-     * @return true if synchronization was attempted
-     * @throws GitLabApiException if the connection against GitLab failed
+     * @param progress the progress of the synchronization
+     * @param full     whether to check the folders of all groups
      */
-    private boolean synchronize() throws GitLabApiException {
-        // only try to synchronize if GitLab is configured
-        if (GitLabConfiguration.isApiConfigured()) {
-            synchronizer.synchronize();
-            return true;
+    private static void runSynchronization(FolderSynchronizationProgress progress, boolean full) {
+        // run as the system like the periodic work timer, to see and create all items
+        SecurityContext previousContext = ACL.impersonate(ACL.SYSTEM);
+        long previousApiCalls = countApiCalls();
+        try {
+            // only try to synchronize if GitLab is configured
+            if (!GitLabConfiguration.isApiConfigured()) {
+                LOGGER.warning("Cannot synchronize GitLab folders: GitLab not configured");
+                progress.finish(FolderSynchronizationProgress.State.FAILED, "GitLab not configured");
+                return;
+            }
+
+            try {
+                synchronizer.synchronize(progress, full);
+            } finally {
+                // failed and cancelled synchronizations have made calls as well
+                progress.recordApiCalls(countApiCalls() - previousApiCalls);
+            }
+            if (progress.isCancelRequested()) {
+                progress.finish(FolderSynchronizationProgress.State.CANCELLED, null);
+            } else {
+                progress.finish(FolderSynchronizationProgress.State.COMPLETED, null);
+            }
+            LOGGER.fine("Performed GitLab folder synchronization in " + progress.getElapsedMillis() + " ms");
+        } catch (GitLabApiException e) {
+            LOGGER.severe("Synchronization of GitLab folders failed: " + e.getMessage());
+            progress.finish(FolderSynchronizationProgress.State.FAILED, e.getMessage());
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Synchronization of GitLab folders failed", e);
+            progress.finish(FolderSynchronizationProgress.State.FAILED, e.toString());
+        } finally {
+            // has no effect if already finished, makes sure a new synchronization can be started
+            progress.finish(FolderSynchronizationProgress.State.FAILED, "Synchronization stopped unexpectedly");
+            SecurityContextHolder.setContext(previousContext);
         }
-        return false;
+    }
+
+    /**
+     * Counts the calls made to GitLab to load the GitLab caches so far.
+     *
+     * @return the number of calls
+     */
+    private static long countApiCalls() {
+        long count = 0;
+        for (CacheStatistics statistics : GitLab.getCacheStatistics()) {
+            count += statistics.getLoadSuccessCount() + statistics.getLoadExceptionCount();
+        }
+        return count;
     }
 
     @Override
     public long getRecurrencePeriod() {
         // duration has to be in ms
-        return getPeriodDuration().toMilliseconds();
+        long period = getPeriodDuration().toMilliseconds();
+        if (isActive()) {
+            // process all slices once per period
+            return Math.max(period / GitLabAuthConfiguration.getSynchronizationSlices(), 1L);
+        }
+        return period;
     }
 
     @Override
@@ -91,19 +215,13 @@ public final class ScheduledGroupFolderSynchronization extends AperiodicWork {
 
     @Override
     protected void doAperiodicRun() {
-        try {
-            if (isActive()) {
-                if (synchronize()) {
-                    LOGGER.fine("Performed GitLab folder synchronization performed");
-                } else {
-                    LOGGER.warning("Cannot synchronize GitLab folders: GitLab not configured. Retrying in " +
-                            getPeriodDuration());
-                }
-            } else {
-                LOGGER.fine("Scheduled GitLab folder synchronization not active");
+        if (isActive()) {
+            // only starts the synchronization, the timer thread is shared with other periodic work
+            if (startSynchronization(false) == null) {
+                LOGGER.fine("Previous GitLab folder synchronization still running, skipping");
             }
-        } catch (GitLabApiException e) {
-            LOGGER.severe("Synchronization of GitLab folders failed: " + e.getMessage());
+        } else {
+            LOGGER.fine("Scheduled GitLab folder synchronization not active");
         }
     }
 
@@ -121,16 +239,159 @@ public final class ScheduledGroupFolderSynchronization extends AperiodicWork {
 
     /**
      * Implementation of the group folder synchronization mechanism.
+     *
+     * Only the changes to the set of groups since the last synchronization are acted upon, so a run where no group
+     * has changed only fetches the groups, compares the hash of their fingerprint and looks up their folders in the
+     * {@link GroupFolderIndex}, recreating any deleted folders.
+     *
+     * If the groups are split into several slices, each run also checks the folders of the groups in one slice, in
+     * turn, so all groups are checked once per period, unless it's a full run checking all slices at once. Groups
+     * seen for the first time are always processed first.
      */
     private static class Synchronizer extends GroupFolderSynchronizer {
+        /** The fingerprint of the groups at the last synchronization. */
+        private GroupSetFingerprint synchronizedGroups = GroupSetFingerprint.EMPTY;
+
+        /** The slice to check in the next sliced synchronization. */
+        private int nextSlice = 0;
+
         /**
          * Synchronizes folders for all GitLab groups.
          *
+         * @param progress the progress of the synchronization
+         * @param full     whether to check the folders of all slices rather than the next one
          * @throws GitLabApiException if the connection against GitLab failed
          */
-        public void synchronize() throws GitLabApiException {
-            // synchronize all available groups
-            synchronizeGroupFolders(GitLab.getGroups());
+        public synchronized void synchronize(FolderSynchronizationProgress progress, boolean full)
+                throws GitLabApiException {
+            List<GitLabGroupInfo> groups = GitLab.getGroups();
+            progress.recordGroupsScanned(groups.size());
+            GroupSetFingerprint fingerprint = new GroupSetFingerprint(groups);
+            int slices = GitLabAuthConfiguration.getSynchronizationSlices();
+
+            if (progress.isCancelRequested()) {
+                return;
+            }
+            if (slices > 1) {
+                synchronizeSlices(groups, fingerprint, slices, full, progress);
+                return;
+            }
+
+            if (fingerprint.hasSameGroups(synchronizedGroups)) {
+                LOGGER.fine("GitLab groups unchanged since the last synchronization");
+            } else {
+                applyChanges(groups, fingerprint);
+                synchronizedGroups = fingerprint;
+            }
+
+            // new groups, groups which folders have been deleted and groups which folders couldn't be created before
+            List<GitLabGroupInfo> groupsWithoutFolders = getGroupsWithoutFolders(groups);
+            if (!groupsWithoutFolders.isEmpty()) {
+                synchronizeGroupFolders(groupsWithoutFolders, progress);
+            }
+        }
+
+        /**
+         * Synchronizes the new groups and the groups of the next slice, or of all slices.
+         *
+         * Groups which folders couldn't be created are retried when their slice is synchronized again. A full
+         * synchronization doesn't move on to the next slice, the scheduled synchronizations keep their turns.
+         *
+         * @param groups      all groups
+         * @param fingerprint the fingerprint of the groups
+         * @param slices      the number of slices
+         * @param full        whether to synchronize the groups of all slices
+         * @param progress    the progress of the synchronization
+         * @throws GitLabApiException if the connection against GitLab failed
+         */
+        private void synchronizeSlices(List<GitLabGroupInfo> groups, GroupSetFingerprint fingerprint, int slices,
+                boolean full, FolderSynchronizationProgress progress) throws GitLabApiException {
+            List<GitLabGroupInfo> sliceGroups = new ArrayList<GitLabGroupInfo>();
+            if (synchronizedGroups == GroupSetFingerprint.EMPTY) {
+                // nothing is known about the groups yet, spread all of them over the slices
+                synchronizedGroups = fingerprint;
+            } else if (!fingerprint.hasSameGroups(synchronizedGroups)) {
+                // new groups get priority
+                sliceGroups.addAll(applyChanges(groups, fingerprint));
+                synchronizedGroups = fingerprint;
+            }
+
+            int slice = nextSlice % slices;
+            if (!full) {
+                nextSlice = (slice + 1) % slices;
+            }
+            int newGroupCount = sliceGroups.size();
+
+            // the new groups may already belong to the slice
+            Set<Integer> sliceGroupIds = new HashSet<Integer>();
+            for (GitLabGroupInfo group : sliceGroups) {
+                sliceGroupIds.add(group.getId());
+            }
+            for (GitLabGroupInfo group : groups) {
+                boolean inSlice = full || GroupSetFingerprint.getSlice(group.getId(), slices) == slice;
+                if (inSlice && sliceGroupIds.add(group.getId())) {
+                    sliceGroups.add(group);
+                }
+            }
+
+            if (full) {
+                LOGGER.fine("Synchronizing all " + slices + " slices with " + sliceGroups.size() + " group(s), "
+                        + newGroupCount + " of them new");
+            } else {
+                LOGGER.fine("Synchronizing slice " + (slice + 1) + " of " + slices + " with " + sliceGroups.size()
+                        + " group(s), " + newGroupCount + " of them new");
+            }
+            synchronizeGroupFolders(sliceGroups, progress);
+        }
+
+        /**
+         * Gets the groups without a group folder.
+         *
+         * @param groups all groups
+         * @return the groups without a folder
+         */
+        private static List<GitLabGroupInfo> getGroupsWithoutFolders(List<GitLabGroupInfo> groups) {
+            GroupFolderIndex index = GroupFolderIndex.getInstance();
+            List<GitLabGroupInfo> groupsWithoutFolders = new ArrayList<GitLabGroupInfo>();
+            for (GitLabGroupInfo group : groups) {
+                if (!index.containsGroup(group.getId())) {
+                    groupsWithoutFolders.add(group);
+                }
+            }
+            return groupsWithoutFolders;
+        }
+
+        /**
+         * Invalidates the cached information of groups renamed or removed since the last synchronization and finds
+         * the new groups.
+         *
+         * @param groups      all groups
+         * @param fingerprint the fingerprint of the groups
+         * @return the new groups
+         */
+        private List<GitLabGroupInfo> applyChanges(List<GitLabGroupInfo> groups, GroupSetFingerprint fingerprint) {
+            // cached group information for renamed and removed groups is outdated
+            for (int groupId : fingerprint.getRenamedGroupIds(synchronizedGroups)) {
+                GitLab.invalidateGroup(groupId);
+            }
+            Set<Integer> removedGroupIds = fingerprint.getRemovedGroupIds(synchronizedGroups);
+            for (int groupId : removedGroupIds) {
+                GitLab.invalidateGroup(groupId);
+            }
+            if (!removedGroupIds.isEmpty()) {
+                // folders of removed groups are kept along with their jobs
+                LOGGER.info("GitLab groups removed since the last synchronization: " + removedGroupIds);
+            }
+
+            // only create folders for new groups
+            Set<Integer> addedGroupIds = fingerprint.getAddedGroupIds(synchronizedGroups);
+            List<GitLabGroupInfo> addedGroups = new ArrayList<GitLabGroupInfo>(addedGroupIds.size());
+            for (GitLabGroupInfo group : groups) {
+                if (addedGroupIds.contains(group.getId())) {
+                    addedGroups.add(group);
+                }
+            }
+            return addedGroups;
         }
     }
 }
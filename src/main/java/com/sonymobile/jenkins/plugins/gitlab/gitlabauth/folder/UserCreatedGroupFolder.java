@@ -26,10 +26,11 @@
 package com.sonymobile.jenkins.plugins.gitlab.gitlabauth.folder;
 
 import hudson.model.Item;
-import hudson.model.TopLevelItem;
+import hudson.security.AuthorizationStrategy;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.logging.Logger;
 
@@ -42,6 +43,7 @@ import com.sonymobile.gitlab.exceptions.GitLabApiException;
 import com.sonymobile.gitlab.model.GitLabAccessLevel;
 import com.sonymobile.gitlab.model.GitLabGroupInfo;
 import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.GitLab;
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.authorization.GitLabAuthorization;
 import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.authorization.GitLabFolderAuthorization;
 import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.exceptions.ItemNameCollisionException;
 
@@ -61,16 +63,23 @@ public class UserCreatedGroupFolder {
      */
     public static List<GroupFolderInfo> getExistingFolders(Authentication auth) throws GitLabApiException {
         List<GroupFolderInfo> groups = new ArrayList<GroupFolderInfo>();
+        List<Folder> folders = GroupFolderIndex.getInstance().getFolders();
         
-        for (TopLevelItem item : Jenkins.getInstance().getItems()) {
-            if (item instanceof Folder) {
-                GitLabFolderAuthorization property = GitLabFolderAuthorization.getFolderProperty((Folder) item);
-                
-                if (property != null && property.getACL().hasPermission(auth, Item.READ)) {
-                    groups.add(new GroupFolderInfo(property));
+        AuthorizationStrategy strategy = Jenkins.getInstance().getAuthorizationStrategy();
+        if (strategy instanceof GitLabAuthorization) {
+            // evaluates each distinct ACL once
+            folders = ((GitLabAuthorization) strategy).filterPermitted(auth, Item.READ, folders);
+        } else {
+            for (Iterator<Folder> i = folders.iterator(); i.hasNext();) {
+                if (!GitLabFolderAuthorization.getFolderProperty(i.next()).getACL().hasPermission(auth, Item.READ)) {
+                    i.remove();
                 }
             }
         }
+        
+        for (Folder folder : folders) {
+            groups.add(new GroupFolderInfo(GitLabFolderAuthorization.getFolderProperty(folder)));
+        }
         return groups;
     }
     
@@ -103,17 +112,7 @@ public class UserCreatedGroupFolder {
      * @return true if a folder can be created
      */
     private static boolean folderExists(GitLabGroupInfo group) {
-        for (TopLevelItem item : Jenkins.getInstance().getItems()) {
-            GroupFolderInfo folderInfo = GroupFolderInfo.createFromItem(item);
-            
-            // if not null, folderInfo is a folder
-            if (folderInfo != null) {
-                if (folderInfo.getGroupId() == group.getId()) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        return GroupFolderIndex.getInstance().containsGroup(group.getId());
     }
     
     /**
@@ -0,0 +1,158 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Andreas Alanko, Emil Nilsson, Sony Mobile Communications AB.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.sonymobile.jenkins.plugins.gitlab.gitlabauth.hook;
+
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.configuration.GitLabAuthConfiguration;
+import hudson.Extension;
+import hudson.model.UnprotectedRootAction;
+import hudson.security.csrf.CrumbExclusion;
+import hudson.util.Secret;
+import net.sf.json.JSONException;
+import net.sf.json.JSONObject;
+import org.apache.commons.io.IOUtils;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.util.logging.Logger;
+
+/**
+ * Endpoint receiving GitLab system hooks.
+ *
+ * Hooks are only accepted if a secret token has been configured and the hook sends the same token in the
+ * {@code X-Gitlab-Token} header. The endpoint is available at {@code JENKINS_URL/gitlab-systemhook/}.
+ *
+ * @author Emil Nilsson
+ */
+@Extension
+public class GitLabSystemHookAction implements UnprotectedRootAction {
+    /** The URL name of the endpoint. */
+    public static final String URL_NAME = "gitlab-systemhook";
+
+    /** The header containing the secret token. */
+    public static final String TOKEN_HEADER = "X-Gitlab-Token";
+
+    /** The character set for comparing tokens. */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** The logger for the class. */
+    private static final Logger LOGGER = Logger.getLogger(GitLabSystemHookAction.class.getName());
+
+    /** The handler for the events. */
+    private final SystemHookEventHandler handler = new SystemHookEventHandler();
+
+    /**
+     * No icon as the action isn't shown in the side menu bar.
+     */
+    public String getIconFileName() {
+        return null;
+    }
+
+    /**
+     * The display name linked to this RootAction.
+     */
+    public String getDisplayName() {
+        return "GitLab System Hook";
+    }
+
+    /**
+     * The URL name used to access the endpoint.
+     */
+    public String getUrlName() {
+        return URL_NAME;
+    }
+
+    /**
+     * Receives a system hook event.
+     *
+     * @param request  the stapler request
+     * @param response the stapler response
+     * @throws IOException if reading the request or writing the response failed
+     */
+    public void doIndex(StaplerRequest request, StaplerResponse response) throws IOException {
+        if (!"POST".equals(request.getMethod())) {
+            response.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+            return;
+        }
+
+        Secret token = GitLabAuthConfiguration.getSystemHookToken();
+        if (token == null) {
+            // system hooks not enabled
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        if (!isValidToken(token, request.getHeader(TOKEN_HEADER))) {
+            LOGGER.warning("Rejected GitLab system hook with invalid token from " + request.getRemoteAddr());
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+
+        try {
+            handler.handle(JSONObject.fromObject(IOUtils.toString(request.getReader())));
+            response.setStatus(HttpServletResponse.SC_OK);
+        } catch (JSONException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid JSON payload");
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * Compares a received token with the configured token in constant time.
+     *
+     * @param token         the configured token
+     * @param receivedToken the received token or null if missing
+     * @return true if the tokens are equal
+     */
+    private static boolean isValidToken(Secret token, String receivedToken) {
+        return receivedToken != null
+                && MessageDigest.isEqual(token.getPlainText().getBytes(UTF8), receivedToken.getBytes(UTF8));
+    }
+
+    /**
+     * Lets GitLab post system hooks without a CSRF crumb, the secret token is checked instead.
+     */
+    @Extension
+    public static class CrumbExclusionImpl extends CrumbExclusion {
+        @Override
+        public boolean process(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+                throws IOException, ServletException {
+            String pathInfo = request.getPathInfo();
+            if (pathInfo != null && (pathInfo.equals("/" + URL_NAME) || pathInfo.startsWith("/" + URL_NAME + "/"))) {
+                chain.doFilter(request, response);
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Andreas Alanko, Emil Nilsson, Sony Mobile Communications AB.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.sonymobile.jenkins.plugins.gitlab.gitlabauth.hook;
+
+import com.sonymobile.gitlab.model.GitLabAccessLevel;
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.GitLab;
+import net.sf.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Handles GitLab system hook events by invalidating the cached data affected by each event.
+ *
+ * This keeps the caches up to date within seconds of a change in GitLab even with long cache durations.
+ *
+ * @author Emil Nilsson
+ */
+public class SystemHookEventHandler {
+    /** The logger for the class. */
+    private static final Logger LOGGER = Logger.getLogger(SystemHookEventHandler.class.getName());
+
+    /**
+     * Handles a system hook event.
+     *
+     * @param event the event payload
+     * @return true if the event affected the caches, false if the event was ignored
+     * @throws IllegalArgumentException if the payload is invalid for the event
+     */
+    public boolean handle(JSONObject event) {
+        String eventName = event.optString("event_name");
+
+        if ("user_add_to_group".equals(eventName)
+                || "user_remove_from_group".equals(eventName)
+                || "user_update_for_group".equals(eventName)) {
+            int groupId = getId(event, "group_id");
+            int userId = getId(event, "user_id");
+            // the members of the group and the groups visible to the user changed
+            GitLab.invalidateGroup(groupId);
+            GitLab.invalidateGroupsAsUser(userId);
+        } else if ("group_create".equals(eventName)) {
+            // the group may have been remembered as missing
+            GitLab.invalidateGroup(getId(event, "group_id"));
+            GitLab.invalidateGroups();
+        } else if ("group_destroy".equals(eventName)) {
+            GitLab.invalidateGroup(getId(event, "group_id"));
+            GitLab.invalidateGroups();
+        } else if ("group_rename".equals(eventName)) {
+            // only the paths and names in the groups lists changed
+            getId(event, "group_id");
+            GitLab.invalidateGroups();
+        } else if ("user_create".equals(eventName) || "user_rename".equals(eventName)) {
+            // the user may have been remembered as missing
+            GitLab.invalidateUser(getId(event, "user_id"));
+        } else if ("user_destroy".equals(eventName)) {
+            int userId = getId(event, "user_id");
+            // copy the memberships as they are removed from the index when the groups are invalidated
+            Map<Integer, GitLabAccessLevel> memberships = GitLab.getGroupMemberships(userId);
+            for (Integer groupId : new ArrayList<Integer>(memberships.keySet())) {
+                GitLab.invalidateGroup(groupId);
+            }
+            GitLab.invalidateUser(userId);
+        } else {
+            LOGGER.fine("Ignored GitLab system hook event: " + eventName);
+            return false;
+        }
+
+        LOGGER.fine("Handled GitLab system hook event: " + eventName);
+        return true;
+    }
+
+    /**
+     * Gets an ID from an event payload.
+     *
+     * @param event the event payload
+     * @param key   the key of the ID
+     * @return the ID
+     * @throws IllegalArgumentException if the ID is missing or invalid
+     */
+    private static int getId(JSONObject event, String key) {
+        if (!event.has(key)) {
+            throw new IllegalArgumentException("Missing " + key + " in event " + event.optString("event_name"));
+        }
+        try {
+            return event.getInt(key);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid " + key + " in event " + event.optString("event_name"), e);
+        }
+    }
+}
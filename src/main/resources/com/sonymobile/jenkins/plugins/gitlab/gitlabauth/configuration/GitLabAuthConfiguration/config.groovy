@@ -25,6 +25,7 @@
 
 package com.sonymobile.jenkins.plugins.gitlab.gitlabauth.configuration.GitLabAuthConfiguration
 
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.cache.CacheSettings
 import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.configuration.GitLabAuthConfiguration
 
 def f = namespace("/lib/form")
@@ -34,7 +35,31 @@ f.section(title: "GitLab Authorization Configuration") {
         f.textbox("default": GitLabAuthConfiguration.DEFAULT_PERIOD_DURATION)
     }
 
+    f.entry(title: "Synchronization slices", field: "synchronizationSlices",
+            description: "The groups are split into this many slices and each synchronization only processes one " +
+                    "slice, spreading the work over the interval. New groups are always processed first.") {
+        f.textbox("default": 1)
+    }
+
     f.entry(title: "Folder creation strategy", field: "autoCreateFolders") {
         f.booleanRadio("true": "Automatically", "false": "User")
     }
+
+    f.entry(title: "GitLab cache duration", field: "cacheDuration") {
+        f.textbox("default": CacheSettings.DEFAULT_EXPIRY_DURATION)
+    }
+
+    f.entry(title: "Missing user/group cache duration", field: "negativeCacheDuration") {
+        f.textbox("default": CacheSettings.DEFAULT_NEGATIVE_EXPIRY_DURATION)
+    }
+
+    f.entry(title: "Refresh caches ahead", field: "refreshAheadCaches") {
+        f.checkbox(title: "Reload cached GitLab data in the background before it expires")
+    }
+
+    f.entry(title: "System hook secret token", field: "systemHookToken",
+            description: "GitLab system hooks sent to JENKINS_URL/gitlab-systemhook/ with this token update the " +
+                    "caches immediately. Leave empty to not accept system hooks.") {
+        f.password()
+    }
 }
\ No newline at end of file
@@ -0,0 +1,107 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Andreas Alanko, Emil Nilsson, Sony Mobile Communications AB.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.sonymobile.jenkins.plugins.gitlab.gitlabauth;
+
+import com.sonymobile.gitlab.model.GitLabAccessLevel;
+import org.junit.Test;
+
+import static com.sonymobile.jenkins.plugins.gitlab.gitlabauth.helpers.MockDataLoaders.loadGroupMembers;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link GitLabGroupMembers}.
+ *
+ * @author Emil Nilsson
+ */
+public class GitLabGroupMembersTest {
+    /**
+     * Tests {@link GitLabGroupMembers#fromMembers(java.util.Collection)}.
+     */
+    @Test
+    public void fromMembers() throws Exception {
+        GitLabGroupMembers members = GitLabGroupMembers.fromMembers(loadGroupMembers(1));
+
+        assertThat(members.size(), is(3));
+
+        assertThat(members.isMember(1), is(true));
+        assertThat(members.isActiveMember(1), is(true));
+        assertThat(members.getAccessLevel(1), is(GitLabAccessLevel.DEVELOPER));
+
+        assertThat("blocked user 2 should be a member", members.isMember(2), is(true));
+        assertThat("blocked user 2 should not be an active member", members.isActiveMember(2), is(false));
+        assertThat(members.getAccessLevel(2), is(GitLabAccessLevel.GUEST));
+
+        assertThat(members.isActiveMember(3), is(true));
+        assertThat(members.getAccessLevel(3), is(GitLabAccessLevel.OWNER));
+
+        assertThat(members.isMember(1000), is(false));
+        assertThat(members.isActiveMember(1000), is(false));
+        assertThat(members.getAccessLevel(1000), is(GitLabAccessLevel.NONE));
+    }
+
+    /**
+     * Tests {@link GitLabGroupMembers#fromArrays(int[], GitLabAccessLevel[], boolean[])} with unsorted user IDs.
+     */
+    @Test
+    public void fromArrays() {
+        GitLabGroupMembers members = GitLabGroupMembers.fromArrays(
+                new int[] { 30, 10, 20 },
+                new GitLabAccessLevel[] { GitLabAccessLevel.OWNER, GitLabAccessLevel.GUEST, GitLabAccessLevel.MASTER },
+                new boolean[] { false, true, false });
+
+        // should be sorted by user ID
+        assertThat(members.getUserIdAt(0), is(10));
+        assertThat(members.getUserIdAt(1), is(20));
+        assertThat(members.getUserIdAt(2), is(30));
+
+        assertThat(members.isBlockedAt(0), is(true));
+        assertThat(members.getAccessLevelAt(0), is(GitLabAccessLevel.GUEST));
+        assertThat(members.getAccessLevelAt(1), is(GitLabAccessLevel.MASTER));
+        assertThat(members.getAccessLevelAt(2), is(GitLabAccessLevel.OWNER));
+
+        assertThat(members, is(GitLabGroupMembers.fromArrays(
+                new int[] { 10, 20, 30 },
+                new GitLabAccessLevel[] { GitLabAccessLevel.GUEST, GitLabAccessLevel.MASTER, GitLabAccessLevel.OWNER },
+                new boolean[] { true, false, false })));
+    }
+
+    /**
+     * Tests that duplicate user IDs only create a single member.
+     */
+    @Test
+    public void fromArraysWithDuplicates() {
+        GitLabGroupMembers members = GitLabGroupMembers.fromArrays(
+                new int[] { 20, 10, 20 },
+                new GitLabAccessLevel[] { GitLabAccessLevel.MASTER, GitLabAccessLevel.GUEST, GitLabAccessLevel.MASTER },
+                new boolean[] { false, false, false });
+
+        assertThat(members.size(), is(2));
+        assertThat(members.getUserIdAt(0), is(10));
+        assertThat(members.getUserIdAt(1), is(20));
+        assertThat(members.getAccessLevel(20), is(GitLabAccessLevel.MASTER));
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Andreas Alanko, Emil Nilsson, Sony Mobile Communications AB.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.sonymobile.jenkins.plugins.gitlab.gitlabauth;
+
+import com.sonymobile.gitlab.model.GitLabAccessLevel;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link GitLabMembershipIndex}.
+ *
+ * @author Emil Nilsson
+ */
+public class GitLabMembershipIndexTest {
+    /**
+     * Tests that the generation of a user only changes when the memberships of the user change.
+     */
+    @Test
+    public void generation() {
+        GitLabMembershipIndex index = new GitLabMembershipIndex();
+        assertThat(index.getGeneration(1), is(0L));
+
+        index.putGroup(1, members(GitLabAccessLevel.DEVELOPER));
+        long generation = index.getGeneration(1);
+        assertThat(generation, is(not(0L)));
+
+        // the same members again
+        index.putGroup(1, members(GitLabAccessLevel.DEVELOPER));
+        assertThat(index.getGeneration(1), is(generation));
+
+        index.putGroup(1, members(GitLabAccessLevel.MASTER));
+        assertThat(index.getGeneration(1), is(not(generation)));
+        assertThat(index.getGroupsForUser(1).get(1), is(GitLabAccessLevel.MASTER));
+
+        generation = index.getGeneration(1);
+        index.invalidateGeneration(1);
+        assertThat(index.getGeneration(1), is(not(generation)));
+    }
+
+    /**
+     * Tests that invalidating all generations changes the generations of both indexed and unknown users.
+     */
+    @Test
+    public void invalidateAllGenerations() {
+        GitLabMembershipIndex index = new GitLabMembershipIndex();
+        index.putGroup(1, members(GitLabAccessLevel.DEVELOPER));
+        long indexedGeneration = index.getGeneration(1);
+        long unknownGeneration = index.getGeneration(2);
+
+        index.invalidateAllGenerations();
+
+        assertThat(index.getGeneration(1), is(not(indexedGeneration)));
+        assertThat(index.getGeneration(2), is(not(unknownGeneration)));
+    }
+
+    /**
+     * Tests that all users fall back to a new base generation once the maximum number of generations is reached.
+     */
+    @Test
+    public void maxGenerations() {
+        GitLabMembershipIndex index = new GitLabMembershipIndex(2);
+        index.invalidateGeneration(1);
+        index.invalidateGeneration(2);
+        long generation1 = index.getGeneration(1);
+        long generation2 = index.getGeneration(2);
+        long unknownGeneration = index.getGeneration(4);
+
+        index.invalidateGeneration(3);
+        long generation3 = index.getGeneration(3);
+
+        assertThat(index.getGeneration(1), is(not(generation1)));
+        assertThat(index.getGeneration(2), is(not(generation2)));
+        assertThat(index.getGeneration(4), is(not(unknownGeneration)));
+        // the users falling back to the base generation have never seen it before
+        assertThat(index.getGeneration(1), is(not(generation2)));
+        assertThat(index.getGeneration(2), is(not(generation1)));
+
+        // only the user which generation changed takes up room afterwards
+        index.invalidateGeneration(3);
+        assertThat(index.getGeneration(3), is(not(generation3)));
+        assertThat(index.getGeneration(1), is(index.getGeneration(2)));
+    }
+
+    /**
+     * Creates the members of a group with user 1 as the only member.
+     *
+     * @param accessLevel the access level of the user
+     * @return the members
+     */
+    private static GitLabGroupMembers members(GitLabAccessLevel accessLevel) {
+        return GitLabGroupMembers.fromArrays(new int[] { 1 }, new GitLabAccessLevel[] { accessLevel },
+                new boolean[] { false });
+    }
+}
@@ -26,22 +26,27 @@
 package com.sonymobile.jenkins.plugins.gitlab.gitlabauth;
 
 import com.google.common.base.Ticker;
-import com.google.common.cache.CacheBuilder;
 import com.sonymobile.gitlab.api.GitLabApiClient;
 import com.sonymobile.gitlab.exceptions.GroupNotFoundException;
 import com.sonymobile.gitlab.exceptions.UserNotFoundException;
 import com.sonymobile.gitlab.model.GitLabAccessLevel;
 import com.sonymobile.gitlab.model.GitLabGroupInfo;
-import com.sonymobile.gitlab.model.GitLabGroupMemberInfo;
 import com.sonymobile.gitlab.model.GitLabUserInfo;
 import com.sonymobile.jenkins.plugins.gitlab.gitlabapi.GitLabConfiguration;
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.cache.CacheSettings;
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.cache.CacheSnapshot;
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.cache.CacheStatistics;
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.time.Interval;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import static com.sonymobile.jenkins.plugins.gitlab.gitlabauth.helpers.MockDataCreators.mockGroupInfo;
@@ -102,13 +107,8 @@ public class GitLabTest {
         // create ticker for testing cache
         mockTicker = new MockTicker();
 
-        // create singleton implementation for GitLab using the mock ticker
-        Object implementation = invokeConstructor(getInnerClassType(GitLab.class, "Implementation"),
-                new Class<?>[] { CacheBuilder.class },
-                new Object[] { CacheBuilder.newBuilder().ticker(mockTicker) });
-
-        // replace the singleton implementation instance of GitLab
-        invokeMethod(GitLab.class, "setInstance", implementation);
+        // use the default cache settings
+        useCacheSettings(CacheSettings.DEFAULT);
     }
 
     @Test
@@ -167,63 +167,165 @@ public class GitLabTest {
         }
     }
 
+    /**
+     * Tests refreshing ahead with {@link GitLab#getUser(int)}.
+     */
+    @Test
+    public void refreshAheadGetUser() throws Exception {
+        // expire after 40 ms, refresh after 20 ms with a reload delay of at most 10 ms
+        useCacheSettings(new CacheSettings(new Interval(40, TimeUnit.MILLISECONDS), true));
+
+        expect(mockApiClient.getUser(1)).andReturn(loadUser()).once();
+        expect(mockApiClient.getUser(1)).andReturn(loadUser("newer")).once();
+        replay(mockApiClient);
+
+        assertThat("username", is(GitLab.getUser(1).getUsername()));
+
+        // advance time past the refresh time but not the expiry time
+        mockTicker.value += TimeUnit.MILLISECONDS.toNanos(30);
+
+        // should still return the previous user while reloading in the background
+        assertThat("username", is(GitLab.getUser(1).getUsername()));
+
+        // wait for the background reload to finish
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!"newusername".equals(GitLab.getUser(1).getUsername()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat("newusername", is(GitLab.getUser(1).getUsername()));
+
+        verify(mockApiClient);
+    }
+
+    /**
+     * Tests caching of missing users with {@link GitLab#getUser(int)}.
+     */
+    @Test
+    public void negativeCachedGetUser() throws Exception {
+        // before the missing user is forgotten
+        {
+            // should only access API once for both method calls
+            expect(mockApiClient.getUser(1000)).andThrow(new UserNotFoundException(EMPTY)).once();
+            replay(mockApiClient);
+
+            assertThat(GitLab.getUser(1000), is(nullValue()));
+
+            // advance time past the expiry of normal entries but not missing users
+            mockTicker.value += 2 * MINUTES;
+            assertThat(GitLab.getUser(1000), is(nullValue()));
+
+            // the second lookup was answered by the negative result cache
+            CacheStatistics users = GitLab.getCacheStatistics().get(0);
+            assertThat(users.getMissingKeyCount(), is(1L));
+            assertThat(users.getRecordedMissCount(), is(1L));
+            assertThat(users.getSavedApiCallCount(), is(1L));
+
+            verify(mockApiClient);
+        }
+
+        reset(mockApiClient);
+
+        // advance time to forget the missing user
+        mockTicker.value += 5 * MINUTES;
+
+        // after the missing user is forgotten
+        {
+            // the user has been created
+            expect(mockApiClient.getUser(1000)).andReturn(loadUser()).once();
+            replay(mockApiClient);
+
+            // should access API again
+            assertThat(GitLab.getUser(1000), is(notNullValue()));
+
+            verify(mockApiClient);
+        }
+    }
+
+    /**
+     * Tests caching of missing groups with {@link GitLab#isActiveGroupMember(int, int)}.
+     */
+    @Test
+    public void negativeCachedIsActiveGroupMember() throws Exception {
+        // should only access API once for both method calls
+        expect(mockApiClient.getGroupMembers(1000)).andThrow(new GroupNotFoundException(EMPTY)).once();
+        replay(mockApiClient);
+
+        assertThat(GitLab.isActiveGroupMember(/* userId */ 1, /* groupId */ 1000), is(false));
+        assertThat(GitLab.isActiveGroupMember(/* userId */ 2, /* groupId */ 1000), is(false));
+
+        verify(mockApiClient);
+    }
+
     @Test
-    public void getGroupMember() throws Exception {
+    public void getGroupMembers() throws Exception {
         expect(mockApiClient.getGroupMembers(1)).andReturn(loadGroupMembers(1)).anyTimes();
         expect(mockApiClient.getGroupMembers(1000)).andThrow(new GroupNotFoundException(EMPTY));
         replay(mockApiClient);
 
-        GitLabGroupMemberInfo goodMember = GitLab.getGroupMember(/* userId */ 1, /* groupId */ 1);
-        GitLabGroupMemberInfo badMember = GitLab.getGroupMember(/* userId */ 1000, /* groupId */ 1);
-        GitLabGroupMemberInfo memberOfBadGroup = GitLab.getGroupMember(/* userId */ 1, /* groupId */ 1000);
+        GitLabGroupMembers members = GitLab.getGroupMembers(/* groupId */ 1);
 
-        assertThat("user 1 should be a member of the group", goodMember, is(notNullValue()));
-        assertThat(1, is(goodMember.getId()));
-        assertThat(1, is(goodMember.getGroupId()));
+        assertThat(members.size(), is(3));
+        assertThat(members.getAccessLevel(1), is(GitLabAccessLevel.DEVELOPER));
+        assertThat(members.getAccessLevel(2), is(GitLabAccessLevel.GUEST));
+        assertThat(members.getAccessLevel(3), is(GitLabAccessLevel.OWNER));
+        assertThat(members.getAccessLevel(1000), is(GitLabAccessLevel.NONE));
 
-        assertThat("user 1000 should not be a member of the group", badMember, is(nullValue()));
-        assertThat("group 1000 should not exist", memberOfBadGroup, is(nullValue()));
+        assertThat("group 1000 should not exist", GitLab.getGroupMembers(/* groupId */ 1000), is(nullValue()));
 
         verify(mockApiClient);
     }
 
     @Test
-    public void getGroupMemberByPath() throws Exception {
+    public void isActiveGroupMember() throws Exception {
         expect(mockApiClient.getGroupMembers(1)).andReturn(loadGroupMembers(1)).anyTimes();
-        // will call getGroups to find the groups
-        expect(mockApiClient.getGroups()).andReturn(loadGroups()).anyTimes();
+        expect(mockApiClient.getGroupMembers(1000)).andThrow(new GroupNotFoundException(EMPTY));
         replay(mockApiClient);
 
-        GitLabGroupMemberInfo goodMember = GitLab.getGroupMember(/* userId */ 1, "groupname");
-        GitLabGroupMemberInfo badMember = GitLab.getGroupMember(/* userId */ 1000, "groupname");
-        GitLabGroupMemberInfo memberOfBadGroup = GitLab.getGroupMember(/* userId */ 1, "notreal");
+        assertThat("user 1 should be a member of the group",
+                GitLab.isActiveGroupMember(/* userId */ 1, /* groupId */ 1), is(true));
+        assertThat("user 2 should be blocked in the group",
+                GitLab.isActiveGroupMember(/* userId */ 2, /* groupId */ 1), is(false));
+        assertThat("user 1000 should not be a member of the group",
+                GitLab.isActiveGroupMember(/* userId */ 1000, /* groupId */ 1), is(false));
+        assertThat("group 1000 should not exist",
+                GitLab.isActiveGroupMember(/* userId */ 1, /* groupId */ 1000), is(false));
 
-        assertThat("user 1 should be a member of the group", goodMember, is(notNullValue()));
-        assertThat(1, is(goodMember.getId()));
-        assertThat(1, is(goodMember.getGroupId()));
+        verify(mockApiClient);
+    }
 
-        assertThat("user 1000 should not be a member of the group", badMember, is(nullValue()));
-        assertThat("group 1000 should not exist", memberOfBadGroup, is(nullValue()));
+    @Test
+    public void isActiveGroupMemberByPath() throws Exception {
+        expect(mockApiClient.getGroupMembers(1)).andReturn(loadGroupMembers(1)).anyTimes();
+        // will call getGroups to find the groups
+        expect(mockApiClient.getGroups()).andReturn(loadGroups()).anyTimes();
+        replay(mockApiClient);
+
+        assertThat("user 1 should be a member of the group",
+                GitLab.isActiveGroupMember(/* userId */ 1, "groupname"), is(true));
+        assertThat("user 1000 should not be a member of the group",
+                GitLab.isActiveGroupMember(/* userId */ 1000, "groupname"), is(false));
+        assertThat("group should not exist",
+                GitLab.isActiveGroupMember(/* userId */ 1, "notreal"), is(false));
 
         verify(mockApiClient);
     }
 
     /**
-     * Tests caching with {@link GitLab#getGroupMember(int, int)}}.
+     * Tests caching with {@link GitLab#getGroupMembers(int)}}.
      */
     @Test
-    public void cachedGetGroupMember() throws Exception {
+    public void cachedGetGroupMembers() throws Exception {
         // before cache invalidation
         {
             // should only access API once for both method calls
             expect(mockApiClient.getGroupMembers(1)).andReturn(loadGroupMembers(1)).once();
             replay(mockApiClient);
 
-            assertThat("username", is(GitLab.getGroupMember(1, 1).getUsername()));
+            assertThat(GitLab.getAccessLevelInGroup(2, 1), is(GitLabAccessLevel.GUEST));
 
             // advance time without forcing cache to invalidate
             mockTicker.value += 10 * SECONDS;
-            assertThat("username", is(GitLab.getGroupMember(1, 1).getUsername()));
+            assertThat(GitLab.getAccessLevelInGroup(2, 1), is(GitLabAccessLevel.GUEST));
 
             verify(mockApiClient);
         }
@@ -235,17 +337,159 @@ public class GitLabTest {
 
         // after cache invalidation
         {
-            // return an updated member object
+            // return updated members
             expect(mockApiClient.getGroupMembers(1)).andReturn(loadGroupMembers(1, "newer")).once();
             replay(mockApiClient);
 
             // should access API again
-            assertThat("newusername", is(GitLab.getGroupMember(1, 1).getUsername()));
+            assertThat(GitLab.getAccessLevelInGroup(2, 1), is(GitLabAccessLevel.DEVELOPER));
 
             verify(mockApiClient);
         }
     }
 
+    /**
+     * Tests the reverse membership index with {@link GitLab#getGroupMemberships(int, java.util.Collection)}.
+     */
+    @Test
+    public void getGroupMemberships() throws Exception {
+        expect(mockApiClient.getGroupMembers(1)).andReturn(loadGroupMembers(1)).once();
+        expect(mockApiClient.getGroupMembers(1000)).andThrow(new GroupNotFoundException(EMPTY)).once();
+        replay(mockApiClient);
+
+        // nothing is indexed before the group members are loaded
+        assertThat(GitLab.getGroupMemberships(1).isEmpty(), is(true));
+
+        Map<Integer, GitLabAccessLevel> memberships = GitLab.getGroupMemberships(1, Arrays.asList(1, 1000));
+        assertThat(memberships.size(), is(1));
+        assertThat(memberships.get(1), is(GitLabAccessLevel.DEVELOPER));
+
+        // should use the index without accessing the API again
+        assertThat(GitLab.getGroupMemberships(3).get(1), is(GitLabAccessLevel.OWNER));
+        assertThat("blocked user 2 should not be indexed", GitLab.getGroupMemberships(2).isEmpty(), is(true));
+        assertThat(GitLab.getGroupMemberships(1000).isEmpty(), is(true));
+
+        verify(mockApiClient);
+    }
+
+    /**
+     * Tests that {@link GitLab#getGroupMemberships(int)} excludes groups which cached members have expired.
+     */
+    @Test
+    public void getGroupMembershipsExpired() throws Exception {
+        expect(mockApiClient.getGroupMembers(1)).andReturn(loadGroupMembers(1)).once();
+        replay(mockApiClient);
+
+        GitLab.getGroupMemberships(1, Arrays.asList(1));
+        assertThat(GitLab.getGroupMemberships(3).get(1), is(GitLabAccessLevel.OWNER));
+
+        // advance time past the expiry of normal entries
+        mockTicker.value += 2 * MINUTES;
+        assertThat(GitLab.getGroupMemberships(3).isEmpty(), is(true));
+
+        verify(mockApiClient);
+    }
+
+    /**
+     * Tests that the caches are populated from a snapshot with {@link GitLab#loadCacheSnapshot(CacheSnapshot, long)}.
+     */
+    @Test
+    public void loadCacheSnapshot() throws Exception {
+        Map<Integer, GitLabGroupMembers> groupMembers = new HashMap<Integer, GitLabGroupMembers>();
+        groupMembers.put(1, GitLabGroupMembers.fromMembers(loadGroupMembers(1)));
+
+        // should not access the API at all
+        replay(mockApiClient);
+
+        long timestamp = System.currentTimeMillis();
+        GitLab.loadCacheSnapshot(new CacheSnapshot(timestamp, loadGroups(), groupMembers), 15 * 60 * 1000);
+
+        assertThat(GitLab.getGroupByPath("groupname").getId(), is(1));
+        assertThat(GitLab.getAccessLevelInGroup(1, 1), is(GitLabAccessLevel.DEVELOPER));
+        assertThat(GitLab.getGroupMemberships(3).get(1), is(GitLabAccessLevel.OWNER));
+
+        CacheSnapshot snapshot = GitLab.createCacheSnapshot();
+        assertThat(snapshot.getGroups(), hasSize(loadGroups().size()));
+        assertThat(snapshot.getGroupMembers(), is(groupMembers));
+        // the loaded data keeps its age
+        assertThat(snapshot.getTimestamp(), is(timestamp));
+
+        verify(mockApiClient);
+    }
+
+    /**
+     * Tests that data loaded from a snapshot expires relative to when the snapshot was created.
+     */
+    @Test
+    public void loadCacheSnapshotExpiry() throws Exception {
+        expect(mockApiClient.getGroupMembers(1)).andReturn(loadGroupMembers(1, "newer")).once();
+        replay(mockApiClient);
+
+        Map<Integer, GitLabGroupMembers> groupMembers = new HashMap<Integer, GitLabGroupMembers>();
+        groupMembers.put(1, GitLabGroupMembers.fromMembers(loadGroupMembers(1)));
+
+        // 30 seconds left of the maximum age
+        long maxAge = 15 * 60 * 1000;
+        GitLab.loadCacheSnapshot(new CacheSnapshot(System.currentTimeMillis() - maxAge + 30 * 1000, null,
+                groupMembers), maxAge);
+
+        mockTicker.value += 20 * SECONDS;
+        assertThat(GitLab.getGroupMemberships(3).get(1), is(GitLabAccessLevel.OWNER));
+
+        // before the normal expiry of the cache
+        mockTicker.value += 20 * SECONDS;
+        assertThat(GitLab.getGroupMemberships(3).isEmpty(), is(true));
+        assertThat(GitLab.getAccessLevelInGroup(2, 1), is(GitLabAccessLevel.DEVELOPER));
+
+        verify(mockApiClient);
+    }
+
+    /**
+     * Tests that nothing is loaded from a snapshot older than the maximum age.
+     */
+    @Test
+    public void loadStaleCacheSnapshot() throws Exception {
+        expect(mockApiClient.getGroupMembers(1)).andReturn(loadGroupMembers(1)).once();
+        replay(mockApiClient);
+
+        Map<Integer, GitLabGroupMembers> groupMembers = new HashMap<Integer, GitLabGroupMembers>();
+        groupMembers.put(1, GitLabGroupMembers.fromMembers(loadGroupMembers(1)));
+
+        long maxAge = 15 * 60 * 1000;
+        GitLab.loadCacheSnapshot(new CacheSnapshot(System.currentTimeMillis() - maxAge - 1000, null, groupMembers),
+                maxAge);
+
+        assertThat(GitLab.getGroupMemberships(3).isEmpty(), is(true));
+        // loaded from the API
+        assertThat(GitLab.getAccessLevelInGroup(3, 1), is(GitLabAccessLevel.OWNER));
+
+        verify(mockApiClient);
+    }
+
+    /**
+     * Tests cache statistics and invalidation of a single user.
+     */
+    @Test
+    public void statisticsAndInvalidateUser() throws Exception {
+        // should access the API again after invalidation
+        expect(mockApiClient.getUser(1)).andReturn(loadUser()).times(2);
+        replay(mockApiClient);
+
+        GitLab.getUser(1);
+        GitLab.getUser(1);
+        GitLab.invalidateUser(1);
+        GitLab.getUser(1);
+
+        CacheStatistics users = GitLab.getCacheStatistics().get(0);
+        assertThat(users.getName(), is("users"));
+        assertThat(users.getSize(), is(1L));
+        assertThat(users.getHitCount(), is(1L));
+        assertThat(users.getMissCount(), is(2L));
+        assertThat(users.getLoadSuccessCount(), is(2L));
+
+        verify(mockApiClient);
+    }
+
     @Test
     public void getGroups() throws Exception {
         expect(mockApiClient.getGroups()).andReturn(loadGroups());
@@ -411,6 +655,21 @@ public class GitLabTest {
         verify(mockApiClient);
     }
 
+    /**
+     * Replaces the singleton implementation of GitLab with one using the mock ticker.
+     *
+     * @param settings the cache settings
+     */
+    private void useCacheSettings(CacheSettings settings) throws Exception {
+        // create singleton implementation for GitLab using the mock ticker
+        Object implementation = invokeConstructor(getInnerClassType(GitLab.class, "Implementation"),
+                new Class<?>[] { Ticker.class, CacheSettings.class },
+                new Object[] { mockTicker, settings });
+
+        // replace the singleton implementation instance of GitLab
+        invokeMethod(GitLab.class, "setInstance", implementation);
+    }
+
     /**
      * A fake Ticker for cache tests.
      */
@@ -0,0 +1,121 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Andreas Alanko, Emil Nilsson, Sony Mobile Communications AB.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.sonymobile.jenkins.plugins.gitlab.gitlabauth.acl;
+
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.GitLab;
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.cache.CacheSettings;
+import hudson.security.ACL;
+import hudson.security.Permission;
+import org.acegisecurity.Authentication;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import static org.easymock.EasyMock.expect;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.powermock.api.easymock.PowerMock.mockStatic;
+import static org.powermock.api.easymock.PowerMock.replay;
+
+/**
+ * Tests for {@link AclDecisionCache}.
+ *
+ * @author Emil Nilsson
+ */
+@RunWith(PowerMockRunner.class)
+@PrepareForTest(GitLab.class)
+public class AclDecisionCacheTest {
+    /** An ACL for the tests. */
+    private final ACL acl = new DummyACL();
+
+    /**
+     * Prepares tests by mocking the GitLab facade and discarding any cached decisions.
+     */
+    @Before
+    public void setUp() {
+        mockStatic(GitLab.class);
+        expect(GitLab.getCacheSettings()).andReturn(CacheSettings.DEFAULT).anyTimes();
+        AclDecisionCache.invalidateAll();
+    }
+
+    /**
+     * Tests that a decision is cached for the user, ACL and permission.
+     */
+    @Test
+    public void cachedDecision() {
+        expect(GitLab.getMembershipGeneration(1)).andReturn(5L).anyTimes();
+        replay(GitLab.class);
+
+        long hits = AclMetrics.getDecisionCacheHits();
+        AclDecisionCache.put(1, acl, Permission.READ, true, AclDecisionCache.getEpoch(), 5L);
+
+        assertThat(AclDecisionCache.get(1, acl, Permission.READ), is(true));
+        assertThat(AclMetrics.getDecisionCacheHits(), is(hits + 1));
+        assertThat(AclDecisionCache.get(1, acl, Permission.DELETE), is(nullValue()));
+        assertThat(AclDecisionCache.get(1, new DummyACL(), Permission.READ), is(nullValue()));
+    }
+
+    /**
+     * Tests that a decision isn't used after the epoch has been advanced.
+     */
+    @Test
+    public void newEpoch() {
+        expect(GitLab.getMembershipGeneration(1)).andReturn(5L).anyTimes();
+        replay(GitLab.class);
+
+        long epoch = AclDecisionCache.getEpoch();
+        AclDecisionCache.invalidateAll();
+        // a decision started before the invalidation
+        AclDecisionCache.put(1, acl, Permission.READ, true, epoch, 5L);
+
+        assertThat(AclDecisionCache.get(1, acl, Permission.READ), is(nullValue()));
+    }
+
+    /**
+     * Tests that a decision isn't used after the memberships of the user have changed.
+     */
+    @Test
+    public void changedMemberships() {
+        expect(GitLab.getMembershipGeneration(1)).andReturn(6L).anyTimes();
+        replay(GitLab.class);
+
+        AclDecisionCache.put(1, acl, Permission.READ, true, AclDecisionCache.getEpoch(), 5L);
+
+        assertThat(AclDecisionCache.get(1, acl, Permission.READ), is(nullValue()));
+    }
+
+    /**
+     * ACL only used as a key.
+     */
+    private static class DummyACL extends ACL {
+        @Override
+        public boolean hasPermission(Authentication auth, Permission permission) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Andreas Alanko, Emil Nilsson, Sony Mobile Communications AB.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.sonymobile.jenkins.plugins.gitlab.gitlabauth.acl;
+
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.security.GitLabUserDetails;
+import hudson.security.Permission;
+import hudson.security.PermissionGroup;
+import org.acegisecurity.Authentication;
+import org.acegisecurity.providers.UsernamePasswordAuthenticationToken;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Collection;
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link AclDecisionMemo} used through {@link GitLabAbstractACL#hasPermission(Authentication, Permission)}.
+ *
+ * @author Emil Nilsson
+ */
+public class AclDecisionMemoTest {
+    /** An authentication for the tests. */
+    private final Authentication auth = new UsernamePasswordAuthenticationToken("username", "password");
+
+    /**
+     * Discards any memo left by a test.
+     */
+    @After
+    public void tearDown() {
+        AclDecisionMemo.end();
+    }
+
+    /**
+     * Tests that decisions are evaluated every time without an active memo.
+     */
+    @Test
+    public void withoutMemo() {
+        CountingACL acl = new CountingACL();
+
+        acl.hasPermission(auth, Permission.READ);
+        acl.hasPermission(auth, Permission.READ);
+
+        assertThat(AclDecisionMemo.isActive(), is(false));
+        assertThat(acl.evaluations, is(2));
+    }
+
+    /**
+     * Tests that each distinct decision is evaluated once with an active memo.
+     */
+    @Test
+    public void withMemo() {
+        CountingACL acl = new CountingACL();
+        CountingACL otherAcl = new CountingACL();
+
+        assertThat(AclDecisionMemo.begin(), is(true));
+        assertThat("a nested memo should not be activated", AclDecisionMemo.begin(), is(false));
+
+        assertThat(acl.hasPermission(auth, Permission.READ), is(true));
+        assertThat(acl.hasPermission(auth, Permission.READ), is(true));
+        assertThat(acl.evaluations, is(1));
+
+        assertThat(acl.hasPermission(auth, Permission.DELETE), is(false));
+        assertThat(acl.hasPermission(new UsernamePasswordAuthenticationToken("username", "password"),
+                Permission.READ), is(true));
+        assertThat(acl.evaluations, is(3));
+
+        otherAcl.hasPermission(auth, Permission.READ);
+        assertThat(otherAcl.evaluations, is(1));
+
+        AclDecisionMemo.end();
+        acl.hasPermission(auth, Permission.READ);
+        assertThat(acl.evaluations, is(4));
+    }
+
+    /**
+     * ACL granting read permissions and counting the evaluations.
+     */
+    private static class CountingACL extends GitLabAbstractACL {
+        /** The number of evaluated decisions. */
+        private int evaluations = 0;
+
+        public CountingACL() {
+            super(new GitLabGrantedPermissions());
+        }
+
+        @Override
+        protected boolean isPermissionGranted(Authentication auth, Permission permission) {
+            evaluations++;
+            return permission == Permission.READ;
+        }
+
+        @Override
+        public Collection<PermissionGroup> getApplicablePermissionGroups() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        protected boolean isAdmin(GitLabUserDetails user) {
+            return false;
+        }
+
+        @Override
+        protected void setDefaultPermissions() {
+        }
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Andreas Alanko, Emil Nilsson, Sony Mobile Communications AB.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.sonymobile.jenkins.plugins.gitlab.gitlabauth.acl;
+
+import com.sonymobile.gitlab.exceptions.GitLabApiException;
+import com.sonymobile.gitlab.helpers.JsonFileLoader;
+import com.sonymobile.gitlab.model.GitLabAccessLevel;
+import com.sonymobile.gitlab.model.GitLabGroupInfo;
+import com.sonymobile.gitlab.model.GitLabSessionInfo;
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.GitLab;
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.cache.CacheSettings;
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.security.GitLabUserDetails;
+import hudson.security.Permission;
+import org.easymock.IAnswer;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static com.sonymobile.gitlab.helpers.JsonFileLoader.jsonFile;
+import static com.sonymobile.jenkins.plugins.gitlab.gitlabauth.helpers.MockDataCreators.mockGroupInfo;
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.powermock.api.easymock.PowerMock.mockStatic;
+import static org.powermock.api.easymock.PowerMock.replay;
+import static org.powermock.api.easymock.PowerMock.verify;
+
+/**
+ * Tests for {@link EffectivePermissionCache}.
+ *
+ * @author Emil Nilsson
+ */
+@RunWith(PowerMockRunner.class)
+@PrepareForTest(GitLab.class)
+public class EffectivePermissionCacheTest {
+    /** A normal GitLab user with ID 2. */
+    private GitLabUserDetails user;
+
+    /** The membership generation of the user. */
+    private long generation = 5;
+
+    /** The executor of the cache, running the computations in the calling thread unless rejecting them. */
+    private final TestExecutor executor = new TestExecutor();
+
+    /**
+     * Prepares tests by mocking the GitLab facade and loading a user.
+     */
+    @Before
+    public void setUp() throws Exception {
+        mockStatic(GitLab.class);
+        expect(GitLab.getCacheSettings()).andReturn(CacheSettings.DEFAULT).anyTimes();
+        expect(GitLab.getMembershipGeneration(2)).andAnswer(new IAnswer<Long>() {
+            public Long answer() throws Throwable {
+                return generation;
+            }
+        }).anyTimes();
+
+        JsonFileLoader.ObjectLoader<GitLabSessionInfo> sessionFile = jsonFile("api/v3/session")
+                .withType(GitLabSessionInfo.class);
+        user = new GitLabUserDetails(sessionFile.loadAsObject());
+    }
+
+    /**
+     * Tests that the computed permissions are reused while nothing has changed.
+     */
+    @Test
+    public void reusedPermissions() {
+        replay(GitLab.class);
+
+        CountingACL acl = new CountingACL(GitLabPermissionIdentity.JENKINS_LOGGED_IN);
+        CompiledPermissions compiled = acl.getGrantedPermissions().getCompiledPermissions();
+        EffectivePermissionCache cache = new EffectivePermissionCache(acl, executor);
+
+        // computed in the background the first time
+        assertThat(cache.getPermissions(user, compiled), is(nullValue()));
+        long[] permissions = cache.getPermissions(user, compiled);
+        assertThat(permissions, is(notNullValue()));
+        assertThat(compiled.hasPermission(permissions, Permission.READ), is(true));
+
+        assertThat(cache.getPermissions(user, compiled), is(sameInstance(permissions)));
+        assertThat(acl.computations, is(1));
+    }
+
+    /**
+     * Tests that the permissions are computed again once the membership generation of the user has changed.
+     */
+    @Test
+    public void changedGeneration() {
+        replay(GitLab.class);
+
+        CountingACL acl = new CountingACL(GitLabPermissionIdentity.JENKINS_LOGGED_IN);
+        CompiledPermissions compiled = acl.getGrantedPermissions().getCompiledPermissions();
+        EffectivePermissionCache cache = new EffectivePermissionCache(acl, executor);
+        cache.getPermissions(user, compiled);
+        long[] permissions = cache.getPermissions(user, compiled);
+
+        generation = 6;
+
+        // outdated permissions are never used
+        assertThat(cache.getPermissions(user, compiled), is(nullValue()));
+        assertThat(acl.computations, is(2));
+        long[] recomputed = cache.getPermissions(user, compiled);
+        assertThat(recomputed, is(notNullValue()));
+        assertThat(recomputed, is(not(sameInstance(permissions))));
+    }
+
+    /**
+     * Tests that a computation rejected because too many are pending is scheduled again on the next check.
+     */
+    @Test
+    public void rejectedComputation() {
+        replay(GitLab.class);
+
+        CountingACL acl = new CountingACL(GitLabPermissionIdentity.JENKINS_LOGGED_IN);
+        CompiledPermissions compiled = acl.getGrantedPermissions().getCompiledPermissions();
+        EffectivePermissionCache cache = new EffectivePermissionCache(acl, executor);
+
+        executor.rejecting = true;
+        assertThat(cache.getPermissions(user, compiled), is(nullValue()));
+        assertThat(cache.getPermissions(user, compiled), is(nullValue()));
+        assertThat(acl.computations, is(0));
+
+        executor.rejecting = false;
+        assertThat(cache.getPermissions(user, compiled), is(nullValue()));
+        assertThat(cache.getPermissions(user, compiled), is(notNullValue()));
+        assertThat(acl.computations, is(1));
+    }
+
+    /**
+     * Tests that permissions computed while a group lookup failed aren't stored.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void failedLookup() throws Exception {
+        expect(GitLab.getGroupsAsUser(2)).andThrow(new GitLabApiException("Connection refused")).once();
+        expect(GitLab.getGroupsAsUser(2)).andReturn(Collections.<GitLabGroupInfo>singletonList(
+                mockGroupInfo(1, "Admins", "admins"))).once();
+        expect(GitLab.getGroupMemberships(eq(2), (Collection<Integer>)anyObject()))
+                .andReturn(Collections.singletonMap(1, GitLabAccessLevel.DEVELOPER)).once();
+        replay(GitLab.class);
+
+        CountingACL acl = new CountingACL(GitLabPermissionIdentity.group("admins"));
+        CompiledPermissions compiled = acl.getGrantedPermissions().getCompiledPermissions();
+        EffectivePermissionCache cache = new EffectivePermissionCache(acl, executor);
+
+        // the permissions lacking the group are discarded
+        assertThat(cache.getPermissions(user, compiled), is(nullValue()));
+        assertThat(cache.getPermissions(user, compiled), is(nullValue()));
+        long[] permissions = cache.getPermissions(user, compiled);
+        assertThat(permissions, is(notNullValue()));
+        assertThat(compiled.hasPermission(permissions, Permission.READ), is(true));
+
+        assertThat(acl.computations, is(2));
+        verify(GitLab.class);
+    }
+
+    /**
+     * Tests that the ACL makes a targeted decision when the computation of the permissions is rejected.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void targetedDecisionWhenRejected() throws Exception {
+        expect(GitLab.getGroupsAsUser(2)).andReturn(Collections.<GitLabGroupInfo>singletonList(
+                mockGroupInfo(1, "Admins", "admins"))).once();
+        expect(GitLab.getGroupMemberships(eq(2), (Collection<Integer>)anyObject()))
+                .andReturn(Collections.singletonMap(1, GitLabAccessLevel.DEVELOPER)).once();
+        replay(GitLab.class);
+
+        CountingACL acl = new CountingACL(GitLabPermissionIdentity.group("admins"));
+        executor.rejecting = true;
+        long targetedDecisions = AclMetrics.getTargetedDecisions();
+
+        assertThat(acl.isPermissionSetRemotely(new UserFacts(user, acl), Permission.READ), is(true));
+
+        assertThat(AclMetrics.getTargetedDecisions(), is(targetedDecisions + 1));
+        assertThat(acl.computations, is(0));
+        verify(GitLab.class);
+    }
+
+    /**
+     * Executor running tasks in the calling thread or rejecting them like a full queue.
+     */
+    private static class TestExecutor implements Executor {
+        /** Whether tasks are rejected. */
+        private boolean rejecting = false;
+
+        public void execute(Runnable command) {
+            if (rejecting) {
+                throw new RejectedExecutionException("Too many pending computations");
+            }
+            command.run();
+        }
+    }
+
+    /**
+     * Global ACL granting a single identity the read permission and counting the computations of identities.
+     */
+    private class CountingACL extends GitLabGlobalACL {
+        /** The number of computations of the identities of a user. */
+        private int computations;
+
+        /**
+         * Creates an ACL.
+         *
+         * @param identity the identity granted the read permission
+         */
+        private CountingACL(GitLabPermissionIdentity identity) {
+            super("", "", false, new GitLabGrantedPermissions());
+            getGrantedPermissions().addPermission(identity, Permission.READ);
+        }
+
+        @Override
+        List<GitLabPermissionIdentity> getIdentities(UserFacts facts) {
+            computations++;
+            return super.getIdentities(facts);
+        }
+
+        @Override
+        EffectivePermissionCache createEffectivePermissionCache() {
+            return new EffectivePermissionCache(this, executor);
+        }
+    }
+}
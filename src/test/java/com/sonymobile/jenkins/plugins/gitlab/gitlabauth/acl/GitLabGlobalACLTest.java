@@ -0,0 +1,210 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Andreas Alanko, Emil Nilsson, Sony Mobile Communications AB.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.sonymobile.jenkins.plugins.gitlab.gitlabauth.acl;
+
+import com.sonymobile.gitlab.exceptions.GitLabApiException;
+import com.sonymobile.gitlab.helpers.JsonFileLoader;
+import com.sonymobile.gitlab.model.GitLabAccessLevel;
+import com.sonymobile.gitlab.model.GitLabGroupInfo;
+import com.sonymobile.gitlab.model.GitLabSessionInfo;
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.GitLab;
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.cache.CacheSettings;
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.security.GitLabUserDetails;
+import hudson.security.Permission;
+import org.acegisecurity.Authentication;
+import org.acegisecurity.GrantedAuthority;
+import org.acegisecurity.providers.UsernamePasswordAuthenticationToken;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static com.sonymobile.gitlab.helpers.JsonFileLoader.jsonFile;
+import static com.sonymobile.jenkins.plugins.gitlab.gitlabauth.helpers.MockDataCreators.mockGroupInfo;
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.powermock.api.easymock.PowerMock.mockStatic;
+import static org.powermock.api.easymock.PowerMock.replay;
+import static org.powermock.api.easymock.PowerMock.verify;
+
+/**
+ * Tests for the admin status and cached decisions of {@link GitLabGlobalACL}.
+ *
+ * @author Emil Nilsson
+ */
+@RunWith(PowerMockRunner.class)
+@PrepareForTest(GitLab.class)
+public class GitLabGlobalACLTest {
+    /** A normal GitLab user with ID 2. */
+    private GitLabUserDetails user;
+
+    /**
+     * Prepares tests by mocking the GitLab facade and loading a user.
+     */
+    @Before
+    public void setUp() throws Exception {
+        mockStatic(GitLab.class);
+
+        JsonFileLoader.ObjectLoader<GitLabSessionInfo> sessionFile = jsonFile("api/v3/session")
+                .withType(GitLabSessionInfo.class);
+        user = new GitLabUserDetails(sessionFile.loadAsObject());
+    }
+
+    /**
+     * Tests that an admin username is resolved without contacting GitLab.
+     */
+    @Test
+    public void adminUsername() {
+        expect(GitLab.getMembershipGeneration(2)).andReturn(5L).anyTimes();
+        replay(GitLab.class);
+
+        GitLabGlobalACL acl = new GitLabGlobalACL("someone, username", "", false, new GitLabGrantedPermissions());
+        assertThat(acl.isAdmin(user), is(true));
+
+        verify(GitLab.class);
+    }
+
+    /**
+     * Tests that admin group memberships are resolved once and then cached.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void cachedAdminGroup() throws Exception {
+        expect(GitLab.getMembershipGeneration(2)).andReturn(5L).anyTimes();
+        expect(GitLab.getGroupsAsUser(2)).andReturn(Collections.<GitLabGroupInfo>singletonList(
+                mockGroupInfo(1, "Admins", "admins"))).once();
+        expect(GitLab.getGroupMemberships(eq(2), (Collection<Integer>)anyObject()))
+                .andReturn(Collections.singletonMap(1, GitLabAccessLevel.DEVELOPER)).once();
+        replay(GitLab.class);
+
+        GitLabGlobalACL acl = new GitLabGlobalACL("", "admins, others", false, new GitLabGrantedPermissions());
+        assertThat(acl.isAdmin(user), is(true));
+        assertThat(acl.isAdmin(user), is(true));
+
+        verify(GitLab.class);
+    }
+
+    /**
+     * Tests that a user not being a member of any admin group isn't an admin.
+     */
+    @Test
+    public void notInAdminGroup() throws Exception {
+        expect(GitLab.getMembershipGeneration(2)).andReturn(5L).anyTimes();
+        expect(GitLab.getGroupsAsUser(2)).andReturn(Collections.<GitLabGroupInfo>singletonList(
+                mockGroupInfo(3, "Users", "users"))).once();
+        replay(GitLab.class);
+
+        GitLabGlobalACL acl = new GitLabGlobalACL("", "admins", false, new GitLabGrantedPermissions());
+        assertThat(acl.isAdmin(user), is(false));
+        assertThat(acl.isAdmin(user), is(false));
+
+        verify(GitLab.class);
+    }
+
+    /**
+     * Tests that a cached admin status is evaluated again once the membership generation of the user has changed.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void changedGeneration() throws Exception {
+        expect(GitLab.getMembershipGeneration(2)).andReturn(5L).times(2);
+        expect(GitLab.getMembershipGeneration(2)).andReturn(6L).once();
+        expect(GitLab.getGroupsAsUser(2)).andReturn(Collections.<GitLabGroupInfo>singletonList(
+                mockGroupInfo(1, "Admins", "admins"))).times(2);
+        expect(GitLab.getGroupMemberships(eq(2), (Collection<Integer>)anyObject()))
+                .andReturn(Collections.singletonMap(1, GitLabAccessLevel.DEVELOPER)).once();
+        // the user has left the admin group
+        expect(GitLab.getGroupMemberships(eq(2), (Collection<Integer>)anyObject()))
+                .andReturn(Collections.<Integer, GitLabAccessLevel>emptyMap()).once();
+        replay(GitLab.class);
+
+        GitLabGlobalACL acl = new GitLabGlobalACL("", "admins", false, new GitLabGrantedPermissions());
+        assertThat(acl.isAdmin(user), is(true));
+        assertThat(acl.isAdmin(user), is(true));
+        assertThat(acl.isAdmin(user), is(false));
+
+        verify(GitLab.class);
+    }
+
+    /**
+     * Tests that a denial caused by a failed GitLab lookup isn't cached, so the permission is granted once GitLab can
+     * be reached again.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void failedLookupNotCached() throws Exception {
+        AclDecisionCache.invalidateAll();
+        expect(GitLab.getCacheSettings()).andReturn(CacheSettings.DEFAULT).anyTimes();
+        expect(GitLab.getMembershipGeneration(2)).andReturn(5L).anyTimes();
+        expect(GitLab.getGroupsAsUser(2)).andThrow(new GitLabApiException("Connection refused")).once();
+        expect(GitLab.getGroupsAsUser(2)).andReturn(Collections.<GitLabGroupInfo>singletonList(
+                mockGroupInfo(1, "Developers", "developers"))).once();
+        expect(GitLab.getGroupMemberships(eq(2), (Collection<Integer>)anyObject()))
+                .andReturn(Collections.singletonMap(1, GitLabAccessLevel.DEVELOPER)).once();
+        replay(GitLab.class);
+
+        GitLabGlobalACL acl = new TargetedGlobalACL();
+        acl.getGrantedPermissions().addPermission(GitLabPermissionIdentity.group("developers"), Permission.READ);
+        Authentication auth = new UsernamePasswordAuthenticationToken(user, "password", new GrantedAuthority[0]);
+
+        assertThat(acl.hasPermission(auth, Permission.READ), is(false));
+        assertThat(acl.hasPermission(auth, Permission.READ), is(true));
+        // the grant is cached
+        assertThat(acl.hasPermission(auth, Permission.READ), is(true));
+
+        verify(GitLab.class);
+    }
+
+    /**
+     * Global ACL always making targeted decisions.
+     */
+    private static class TargetedGlobalACL extends GitLabGlobalACL {
+        /**
+         * Creates an ACL without admins.
+         */
+        private TargetedGlobalACL() {
+            super("", "", false, new GitLabGrantedPermissions());
+        }
+
+        @Override
+        EffectivePermissionCache createEffectivePermissionCache() {
+            // the effective permissions would otherwise look up the groups in the background
+            return new EffectivePermissionCache(this, new Executor() {
+                public void execute(Runnable command) {
+                    throw new RejectedExecutionException();
+                }
+            });
+        }
+    }
+}
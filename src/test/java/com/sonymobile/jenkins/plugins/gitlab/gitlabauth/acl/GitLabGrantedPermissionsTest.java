@@ -28,11 +28,15 @@ package com.sonymobile.jenkins.plugins.gitlab.gitlabauth.acl;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.acl.GitLabPermissionIdentity.IdentityType;
+
 import hudson.security.Permission;
 
 /**
@@ -72,6 +76,81 @@ public class GitLabGrantedPermissionsTest {
         assertFalse(grantedPermissions.isPermissionSet(GitLabPermissionIdentity.group("Group"), Permission.DELETE));
     }
     
+    @Test
+    public void testHasPermission() {
+        assertTrue(grantedPermissions.hasPermission(GitLabPermissionIdentity.GITLAB_DEVELOPER, Permission.CREATE));
+        assertTrue(grantedPermissions.hasPermission(GitLabPermissionIdentity.user("User"), Permission.DELETE));
+        assertTrue(grantedPermissions.hasPermission(GitLabPermissionIdentity.group("Group"), Permission.READ));
+
+        // implied by Permission.WRITE but not set
+        assertTrue(grantedPermissions.hasPermission(GitLabPermissionIdentity.GITLAB_GUEST, Permission.DELETE));
+        assertFalse(grantedPermissions.isPermissionSet(GitLabPermissionIdentity.GITLAB_GUEST, Permission.DELETE));
+
+        assertFalse(grantedPermissions.hasPermission(GitLabPermissionIdentity.GITLAB_DEVELOPER, Permission.WRITE));
+        assertFalse(grantedPermissions.hasPermission(GitLabPermissionIdentity.GITLAB_OWNER, Permission.WRITE));
+        assertFalse(grantedPermissions.hasPermission(GitLabPermissionIdentity.group("Group"), Permission.DELETE));
+        assertFalse(grantedPermissions.hasPermission(null, Permission.WRITE));
+        assertFalse(grantedPermissions.hasPermission(GitLabPermissionIdentity.GITLAB_GUEST, null));
+
+        // changes should be visible after the permissions have been compiled
+        grantedPermissions.addPermission(GitLabPermissionIdentity.GITLAB_OWNER, Permission.WRITE);
+        assertTrue(grantedPermissions.hasPermission(GitLabPermissionIdentity.GITLAB_OWNER, Permission.UPDATE));
+    }
+
+    @Test
+    public void testHasPermissionRegisteredAfterCompiling() {
+        // compile the permissions
+        grantedPermissions.hasPermission(GitLabPermissionIdentity.GITLAB_GUEST, Permission.WRITE);
+
+        Permission latePermission = new Permission(Permission.WRITE.group, "LatePermission", null, Permission.WRITE);
+
+        assertTrue(grantedPermissions.hasPermission(GitLabPermissionIdentity.GITLAB_GUEST, latePermission));
+        assertFalse(grantedPermissions.hasPermission(GitLabPermissionIdentity.GITLAB_DEVELOPER, latePermission));
+    }
+
+    @Test
+    public void testCombinedPermissions() {
+        CompiledPermissions compiled = grantedPermissions.getCompiledPermissions();
+        long[] combined = compiled.combine(Arrays.asList(
+                GitLabPermissionIdentity.user("User"), GitLabPermissionIdentity.group("Group")));
+
+        assertTrue(compiled.hasPermission(combined, Permission.DELETE));
+        assertTrue(compiled.hasPermission(combined, Permission.READ));
+        assertFalse(compiled.hasPermission(combined, Permission.CREATE));
+        assertFalse(compiled.hasPermission(compiled.combine(
+                Collections.<GitLabPermissionIdentity>emptyList()), Permission.READ));
+    }
+    
+    @Test
+    public void testPermissionsByType() {
+        CompiledPermissions compiled = grantedPermissions.getCompiledPermissions();
+
+        assertTrue(compiled.hasPermission(IdentityType.GITLAB, Permission.DELETE));
+        assertTrue(compiled.hasPermission(IdentityType.GROUP, Permission.READ));
+        assertFalse(compiled.hasPermission(IdentityType.GROUP, Permission.DELETE));
+        assertFalse(compiled.hasPermission(IdentityType.JENKINS, Permission.READ));
+
+        assertTrue(compiled.hasAnyPermission(IdentityType.USER));
+        assertFalse(compiled.hasAnyPermission(IdentityType.JENKINS));
+        assertTrue(compiled.hasAnyPermission(GitLabPermissionIdentity.GITLAB_GUEST));
+        assertFalse(compiled.hasAnyPermission(GitLabPermissionIdentity.JENKINS_ADMIN));
+    }
+    
+    @Test
+    public void testGrantingIdentities() {
+        CompiledPermissions compiled = grantedPermissions.getCompiledPermissions();
+
+        // WRITE implies DELETE
+        List<GitLabPermissionIdentity> identities = compiled.getGrantingIdentities(IdentityType.GITLAB, Permission.DELETE);
+        assertTrue(identities.contains(GitLabPermissionIdentity.GITLAB_GUEST));
+        assertFalse(identities.contains(GitLabPermissionIdentity.GITLAB_DEVELOPER));
+
+        assertTrue(compiled.getGrantingIdentities(IdentityType.USER, Permission.DELETE)
+                .contains(GitLabPermissionIdentity.user("User")));
+        assertTrue(compiled.getGrantingIdentities(IdentityType.GROUP, Permission.DELETE).isEmpty());
+        assertTrue(compiled.getGrantingIdentities(IdentityType.JENKINS, Permission.READ).isEmpty());
+    }
+    
     @Test
     public void testGetPermissionIdentitiesWithGitLabIdentities() {
         List<GitLabPermissionIdentity> identities = grantedPermissions.getPermissionIdentities(true);
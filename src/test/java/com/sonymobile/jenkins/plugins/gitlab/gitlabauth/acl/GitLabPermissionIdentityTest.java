@@ -187,6 +187,19 @@ public class GitLabPermissionIdentityTest {
         assertFalse(GitLabPermissionIdentity.group("groupName").equals(GitLabPermissionIdentity.user("userName")));
     }
 
+    @Test
+    public void testInterned() {
+        GitLabPermissionIdentity user = GitLabPermissionIdentity.user("userName");
+        GitLabPermissionIdentity group = GitLabPermissionIdentity.group("userName");
+
+        assertSame(user, GitLabPermissionIdentity.user(new String("userName")));
+        assertSame(group, GitLabPermissionIdentity.group(new String("userName")));
+        assertNotSame(user, group);
+        assertEquals(IdentityType.GROUP, group.type);
+        assertSame(GitLabPermissionIdentity.GITLAB_NONE,
+                GitLabPermissionIdentity.getGitLabIdentityFromAccessLevel(GitLabAccessLevel.NONE));
+    }
+
     @Test
     public void testToString() {
         assertEquals(GitLabPermissionIdentity.GITLAB_DEVELOPER.toString(), "GITLAB:DEVELOPER");
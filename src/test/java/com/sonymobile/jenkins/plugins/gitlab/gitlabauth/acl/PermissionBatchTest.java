@@ -0,0 +1,182 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Andreas Alanko, Emil Nilsson, Sony Mobile Communications AB.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.sonymobile.jenkins.plugins.gitlab.gitlabauth.acl;
+
+import com.sonymobile.gitlab.helpers.JsonFileLoader;
+import com.sonymobile.gitlab.model.GitLabAccessLevel;
+import com.sonymobile.gitlab.model.GitLabGroupInfo;
+import com.sonymobile.gitlab.model.GitLabSessionInfo;
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.GitLab;
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.authorization.GitLabAuthorization;
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.cache.CacheSettings;
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.security.GitLabUserDetails;
+import hudson.security.ACL;
+import hudson.security.Permission;
+import jenkins.model.Jenkins;
+import org.acegisecurity.Authentication;
+import org.acegisecurity.GrantedAuthority;
+import org.acegisecurity.providers.UsernamePasswordAuthenticationToken;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static com.sonymobile.gitlab.helpers.JsonFileLoader.jsonFile;
+import static com.sonymobile.jenkins.plugins.gitlab.gitlabauth.helpers.MockDataCreators.mockGroupInfo;
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.powermock.api.easymock.PowerMock.createMock;
+import static org.powermock.api.easymock.PowerMock.mockStatic;
+import static org.powermock.api.easymock.PowerMock.replay;
+import static org.powermock.api.easymock.PowerMock.verify;
+
+/**
+ * Tests for {@link PermissionBatch}.
+ *
+ * @author Emil Nilsson
+ */
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({ GitLab.class, Jenkins.class })
+public class PermissionBatchTest {
+    /** A principal which isn't a GitLab user. */
+    private final Authentication auth = new UsernamePasswordAuthenticationToken("username", "password");
+
+    /**
+     * Tests that each distinct ACL is only evaluated once.
+     */
+    @Test
+    public void evaluatedOnce() {
+        CountingACL granting = new CountingACL(true);
+        CountingACL denying = new CountingACL(false);
+        PermissionBatch batch = new PermissionBatch(auth, Permission.READ, null);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(batch.hasPermission(granting), is(true));
+            assertThat(batch.hasPermission(denying), is(false));
+        }
+
+        assertThat(granting.evaluations, is(1));
+        assertThat(denying.evaluations, is(1));
+    }
+
+    /**
+     * Tests that the facts of a GitLab user are shared by the evaluation of several folder ACLs, so GitLab is only
+     * queried once for the groups of the user.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void sharedUserFacts() throws Exception {
+        GitLabAuthorization authorization = new GitLabAuthorization("", "", false, new GitLabGrantedPermissions());
+        Jenkins jenkins = createMock(Jenkins.class);
+        expect(jenkins.getAuthorizationStrategy()).andReturn(authorization).anyTimes();
+        mockStatic(Jenkins.class);
+        expect(Jenkins.getInstance()).andReturn(jenkins).anyTimes();
+
+        mockStatic(GitLab.class);
+        expect(GitLab.getCacheSettings()).andReturn(CacheSettings.DEFAULT).anyTimes();
+        expect(GitLab.getMembershipGeneration(2)).andReturn(5L).anyTimes();
+        expect(GitLab.getGroupsAsUser(2)).andReturn(Collections.<GitLabGroupInfo>singletonList(
+                mockGroupInfo(1, "Developers", "developers"))).once();
+        expect(GitLab.getGroupMemberships(eq(2), (Collection<Integer>)anyObject()))
+                .andReturn(Collections.singletonMap(1, GitLabAccessLevel.DEVELOPER)).once();
+        replay(jenkins, Jenkins.class, GitLab.class);
+
+        JsonFileLoader.ObjectLoader<GitLabSessionInfo> sessionFile = jsonFile("api/v3/session")
+                .withType(GitLabSessionInfo.class);
+        GitLabUserDetails user = new GitLabUserDetails(sessionFile.loadAsObject());
+        Authentication gitLabAuth = new UsernamePasswordAuthenticationToken(user, "password",
+                new GrantedAuthority[0]);
+        PermissionBatch batch = new PermissionBatch(gitLabAuth, Permission.READ,
+                (GitLabGlobalACL)authorization.getRootACL());
+
+        for (int groupId = 1; groupId <= 3; groupId++) {
+            assertThat(batch.hasPermission(new TargetedFolderACL(groupId, "developers")), is(true));
+        }
+
+        verify(GitLab.class);
+    }
+
+    /**
+     * Folder ACL granting a group the read permission, always making targeted decisions.
+     */
+    private static class TargetedFolderACL extends GitLabFolderACL {
+        /**
+         * Creates an ACL.
+         *
+         * @param groupId   the group ID of the folder
+         * @param groupPath the path of the group granted the read permission
+         */
+        private TargetedFolderACL(int groupId, String groupPath) {
+            super(new GitLabGrantedPermissions());
+            setGroupId(groupId);
+            getGrantedPermissions().addPermission(GitLabPermissionIdentity.group(groupPath), Permission.READ);
+        }
+
+        @Override
+        EffectivePermissionCache createEffectivePermissionCache() {
+            // the effective permissions would otherwise look up the groups in the background
+            return new EffectivePermissionCache(this, new Executor() {
+                public void execute(Runnable command) {
+                    throw new RejectedExecutionException();
+                }
+            });
+        }
+    }
+
+    /**
+     * ACL counting its evaluations.
+     */
+    private static class CountingACL extends ACL {
+        /** The decision of the ACL. */
+        private final boolean decision;
+
+        /** The number of evaluations. */
+        private int evaluations;
+
+        /**
+         * Creates an ACL.
+         *
+         * @param decision the decision of the ACL
+         */
+        private CountingACL(boolean decision) {
+            this.decision = decision;
+        }
+
+        @Override
+        public boolean hasPermission(Authentication auth, Permission permission) {
+            evaluations++;
+            return decision;
+        }
+    }
+}
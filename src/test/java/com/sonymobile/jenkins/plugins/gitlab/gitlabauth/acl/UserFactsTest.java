@@ -0,0 +1,115 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Andreas Alanko, Emil Nilsson, Sony Mobile Communications AB.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.sonymobile.jenkins.plugins.gitlab.gitlabauth.acl;
+
+import com.sonymobile.gitlab.helpers.JsonFileLoader;
+import com.sonymobile.gitlab.model.GitLabAccessLevel;
+import com.sonymobile.gitlab.model.GitLabGroupInfo;
+import com.sonymobile.gitlab.model.GitLabSessionInfo;
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.GitLab;
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.security.GitLabUserDetails;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+import static com.sonymobile.gitlab.helpers.JsonFileLoader.jsonFile;
+import static com.sonymobile.jenkins.plugins.gitlab.gitlabauth.helpers.MockDataCreators.mockGroupInfo;
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.powermock.api.easymock.PowerMock.mockStatic;
+import static org.powermock.api.easymock.PowerMock.replay;
+import static org.powermock.api.easymock.PowerMock.verify;
+
+/**
+ * Tests for {@link UserFacts}.
+ *
+ * @author Emil Nilsson
+ */
+@RunWith(PowerMockRunner.class)
+@PrepareForTest(GitLab.class)
+public class UserFactsTest {
+    /** The facts of a normal GitLab user with ID 2. */
+    private UserFacts facts;
+
+    /**
+     * Prepares tests by mocking the GitLab facade and loading a user.
+     */
+    @Before
+    public void setUp() throws Exception {
+        mockStatic(GitLab.class);
+
+        JsonFileLoader.ObjectLoader<GitLabSessionInfo> sessionFile = jsonFile("api/v3/session")
+                .withType(GitLabSessionInfo.class);
+        GitLabUserDetails user = new GitLabUserDetails(sessionFile.loadAsObject());
+        facts = new UserFacts(user, new GitLabGlobalACL("username", "", false, new GitLabGrantedPermissions()));
+    }
+
+    /**
+     * Tests that group memberships are only looked up once for each group.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void activeGroupPaths() throws Exception {
+        expect(GitLab.getGroupsAsUser(2)).andReturn(Arrays.<GitLabGroupInfo>asList(
+                mockGroupInfo(1, "Group", "group"), mockGroupInfo(3, "Other", "other"))).once();
+        expect(GitLab.getGroupMemberships(eq(2), (Collection<Integer>)anyObject()))
+                .andReturn(Collections.singletonMap(1, GitLabAccessLevel.DEVELOPER)).once();
+        replay(GitLab.class);
+
+        assertThat(facts.getActiveGroupPaths(Arrays.asList("group", "other")),
+                is(Collections.singleton("group")));
+        // already known groups shouldn't be looked up again
+        assertThat(facts.getActiveGroupPaths(Collections.singletonList("group")),
+                is(Collections.singleton("group")));
+
+        verify(GitLab.class);
+    }
+
+    /**
+     * Tests that the access level in a group and the admin status are only looked up once.
+     */
+    @Test
+    public void accessLevelAndAdmin() throws Exception {
+        expect(GitLab.getAccessLevelInGroup(2, 1)).andReturn(GitLabAccessLevel.MASTER).once();
+        // the cached admin status is validated against the generation of the memberships
+        expect(GitLab.getMembershipGeneration(2)).andReturn(5L).once();
+        replay(GitLab.class);
+
+        assertThat(facts.getAccessLevelIdentity(1), is(GitLabPermissionIdentity.GITLAB_MASTER));
+        assertThat(facts.getAccessLevelIdentity(1), is(GitLabPermissionIdentity.GITLAB_MASTER));
+        assertThat(facts.isAdmin(), is(true));
+
+        verify(GitLab.class);
+    }
+}
@@ -0,0 +1,310 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Andreas Alanko, Emil Nilsson, Sony Mobile Communications AB.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.sonymobile.jenkins.plugins.gitlab.gitlabauth.authorization;
+
+import com.cloudbees.hudson.plugins.folder.Folder;
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.acl.GitLabGrantedPermissions;
+import hudson.model.Describable;
+import hudson.model.ItemGroup;
+import hudson.security.ACL;
+import hudson.security.Permission;
+import hudson.util.DescribableList;
+import jenkins.model.Jenkins;
+import org.acegisecurity.Authentication;
+import org.acegisecurity.providers.UsernamePasswordAuthenticationToken;
+import org.easymock.IAnswer;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.expect;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertThat;
+import static org.powermock.api.easymock.PowerMock.createMock;
+import static org.powermock.api.easymock.PowerMock.mockStatic;
+import static org.powermock.api.easymock.PowerMock.replay;
+
+/**
+ * Tests for the resolved ACLs of {@link GitLabAuthorization}.
+ *
+ * @author Emil Nilsson
+ */
+@RunWith(PowerMockRunner.class)
+@PrepareForTest(Jenkins.class)
+public class GitLabAuthorizationTest {
+    /** The authorization strategy. */
+    private GitLabAuthorization authorization;
+
+    /** The listener discarding the resolved ACLs. */
+    private GitLabAuthorization.ItemListenerImpl listener;
+
+    /** The top level item group. */
+    private ItemGroup root;
+
+    /** The current parents of the mock folders. */
+    private final Map<Folder, ItemGroup> parents = new HashMap<Folder, ItemGroup>();
+
+    /** The current folder authorizations of the mock folders. */
+    private final Map<Folder, GitLabFolderAuthorization> properties = new HashMap<Folder, GitLabFolderAuthorization>();
+
+    /**
+     * Prepares tests by making the authorization strategy the current strategy of a mock Jenkins instance.
+     */
+    @Before
+    public void setUp() {
+        authorization = new GitLabAuthorization("", "", false, new GitLabGrantedPermissions());
+        listener = new GitLabAuthorization.ItemListenerImpl();
+        root = createMock(ItemGroup.class);
+        replay(root);
+
+        Jenkins jenkins = createMock(Jenkins.class);
+        expect(jenkins.getAuthorizationStrategy()).andReturn(authorization).anyTimes();
+        replay(jenkins);
+        mockStatic(Jenkins.class);
+        expect(Jenkins.getInstance()).andReturn(jenkins).anyTimes();
+        replay(Jenkins.class);
+    }
+
+    /**
+     * Tests that the resolved ACL of a folder is reused.
+     */
+    @Test
+    public void resolvedOnce() {
+        GitLabFolderAuthorization property = new GitLabFolderAuthorization(1);
+        Folder folder = folder(root, property);
+
+        assertThat(authorization.getACL(folder), is(sameInstance(property.getACL())));
+        // changes are only seen after the resolved ACLs have been discarded
+        properties.remove(folder);
+        assertThat(authorization.getACL(folder), is(sameInstance(property.getACL())));
+    }
+
+    /**
+     * Tests that attaching a folder authorization to a folder which used the root ACL yields the folder ACL.
+     */
+    @Test
+    public void propertyAttached() {
+        Folder folder = folder(root, null);
+        assertThat(authorization.getACL(folder), is(sameInstance(authorization.getRootACL())));
+
+        GitLabFolderAuthorization property = new GitLabFolderAuthorization(1);
+        properties.put(folder, property);
+        property.setOwner(folder);
+
+        assertThat(authorization.getACL(folder), is(sameInstance(property.getACL())));
+    }
+
+    /**
+     * Tests that changing the folder authorization of a folder yields the new folder ACL.
+     */
+    @Test
+    public void propertyChanged() {
+        Folder folder = folder(root, new GitLabFolderAuthorization(1));
+        authorization.getACL(folder);
+
+        GitLabFolderAuthorization property = new GitLabFolderAuthorization(1);
+        properties.put(folder, property);
+        property.setOwner(folder);
+
+        assertThat(authorization.getACL(folder), is(sameInstance(property.getACL())));
+    }
+
+    /**
+     * Tests that creating or updating items keeps the resolved ACLs.
+     */
+    @Test
+    public void createdOrUpdated() {
+        GitLabFolderAuthorization property = new GitLabFolderAuthorization(1);
+        Folder folder = folder(root, property);
+        authorization.getACL(folder);
+
+        properties.remove(folder);
+        listener.onCreated(folder(folder, null));
+        listener.onUpdated(folder);
+
+        assertThat(authorization.getACL(folder), is(sameInstance(property.getACL())));
+    }
+
+    /**
+     * Tests that moving a folder between group folders yields the ACL of the new group folder.
+     */
+    @Test
+    public void moved() {
+        GitLabFolderAuthorization property1 = new GitLabFolderAuthorization(1);
+        GitLabFolderAuthorization property2 = new GitLabFolderAuthorization(2);
+        Folder group1 = folder(root, property1);
+        Folder group2 = folder(root, property2);
+        Folder folder = folder(group1, null);
+        assertThat(authorization.getACL(folder), is(sameInstance(property1.getACL())));
+
+        parents.put(folder, group2);
+        listener.onLocationChanged(folder, "group1/folder", "group2/folder");
+
+        assertThat(authorization.getACL(folder), is(sameInstance(property2.getACL())));
+    }
+
+    /**
+     * Tests that moving a folder discards the resolved ACLs of the items within it but keeps those of other items.
+     */
+    @Test
+    public void movedSubtree() {
+        GitLabFolderAuthorization property1 = new GitLabFolderAuthorization(1);
+        GitLabFolderAuthorization property2 = new GitLabFolderAuthorization(2);
+        Folder group1 = folder(root, property1);
+        Folder group2 = folder(root, property2);
+        Folder folder = folder(group1, null);
+        Folder child = folder(folder, null);
+        Folder sibling = folder(group1, null);
+        authorization.getACL(child);
+        authorization.getACL(sibling);
+
+        parents.put(folder, group2);
+        parents.put(sibling, group2);
+        listener.onLocationChanged(folder, "group1/folder", "group2/folder");
+
+        assertThat(authorization.getACL(child), is(sameInstance(property2.getACL())));
+        // the sibling wasn't reported as moved
+        assertThat(authorization.getACL(sibling), is(sameInstance(property1.getACL())));
+    }
+
+    /**
+     * Tests that renaming a folder discards the resolved ACLs.
+     */
+    @Test
+    public void renamed() {
+        GitLabFolderAuthorization property = new GitLabFolderAuthorization(1);
+        Folder folder = folder(root, property);
+        authorization.getACL(folder);
+
+        properties.remove(folder);
+        listener.onRenamed(folder, "group1", "folder");
+
+        assertThat(authorization.getACL(folder), is(sameInstance(authorization.getRootACL())));
+    }
+
+    /**
+     * Tests that filtering items keeps the order of the permitted items and evaluates each resolved ACL once.
+     */
+    @Test
+    public void filterPermitted() {
+        CountingACL granting = new CountingACL(true);
+        CountingACL denying = new CountingACL(false);
+        Folder group1 = folder(root, folderAuthorization(1, granting));
+        Folder group2 = folder(root, folderAuthorization(2, denying));
+        Folder folder1 = folder(group1, null);
+        Folder folder2 = folder(group2, null);
+        Folder folder3 = folder(group1, null);
+        Authentication auth = new UsernamePasswordAuthenticationToken("username", "password");
+
+        assertThat(authorization.filterPermitted(auth, Permission.READ,
+                Arrays.asList(folder1, group2, group1, folder2, folder3)), contains(folder1, group1, folder3));
+
+        assertThat(granting.evaluations, is(1));
+        assertThat(denying.evaluations, is(1));
+    }
+
+    /**
+     * Creates a mock folder authorization with an ACL.
+     *
+     * @param groupId the group ID
+     * @param acl     the ACL
+     * @return the folder authorization
+     */
+    private static GitLabFolderAuthorization folderAuthorization(int groupId, ACL acl) {
+        GitLabFolderAuthorization property = createMock(GitLabFolderAuthorization.class);
+        expect(property.getGroupId()).andReturn(groupId).anyTimes();
+        expect(property.getACL()).andReturn(acl).anyTimes();
+        replay(property);
+        return property;
+    }
+
+    /**
+     * Creates a mock folder which parent and folder authorization can be changed through the maps of the test.
+     *
+     * @param parent   the parent
+     * @param property the folder authorization or null
+     * @return the folder
+     */
+    @SuppressWarnings("unchecked")
+    private Folder folder(ItemGroup parent, GitLabFolderAuthorization property) {
+        final Folder folder = createMock(Folder.class);
+        parents.put(folder, parent);
+        if (property != null) {
+            properties.put(folder, property);
+        }
+
+        DescribableList propertyList = createMock(DescribableList.class);
+        expect(folder.getProperties()).andReturn(propertyList).anyTimes();
+        expect(propertyList.get(anyObject(Class.class))).andAnswer(new IAnswer<Describable>() {
+            public Describable answer() throws Throwable {
+                return properties.get(folder);
+            }
+        }).anyTimes();
+        expect((ItemGroup)folder.getParent()).andAnswer(new IAnswer<ItemGroup>() {
+            public ItemGroup answer() throws Throwable {
+                return parents.get(folder);
+            }
+        }).anyTimes();
+        replay(folder, propertyList);
+
+        return folder;
+    }
+
+    /**
+     * ACL counting its evaluations.
+     */
+    private static class CountingACL extends ACL {
+        /** The decision of the ACL. */
+        private final boolean decision;
+
+        /** The number of evaluations. */
+        private int evaluations;
+
+        /**
+         * Creates an ACL.
+         *
+         * @param decision the decision of the ACL
+         */
+        private CountingACL(boolean decision) {
+            this.decision = decision;
+        }
+
+        @Override
+        public boolean hasPermission(Authentication auth, Permission permission) {
+            evaluations++;
+            return decision;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Andreas Alanko, Emil Nilsson, Sony Mobile Communications AB.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.sonymobile.jenkins.plugins.gitlab.gitlabauth.cache;
+
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.time.Interval;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link CacheSnapshotPersistence}.
+ *
+ * @author Emil Nilsson
+ */
+public class CacheSnapshotPersistenceTest {
+    /**
+     * Tests deriving the maximum snapshot age from the cache duration.
+     */
+    @Test
+    public void getMaxSnapshotAge() {
+        // long enough for a restart with the default cache duration
+        assertThat(CacheSnapshotPersistence.getMaxSnapshotAge(new Interval(1, TimeUnit.MINUTES)),
+                is(TimeUnit.MINUTES.toMillis(15)));
+        // never shorter than the cache duration
+        assertThat(CacheSnapshotPersistence.getMaxSnapshotAge(new Interval(1, TimeUnit.HOURS)),
+                is(TimeUnit.HOURS.toMillis(1)));
+    }
+}
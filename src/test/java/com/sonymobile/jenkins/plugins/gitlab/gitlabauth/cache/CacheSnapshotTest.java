@@ -0,0 +1,157 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Andreas Alanko, Emil Nilsson, Sony Mobile Communications AB.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.sonymobile.jenkins.plugins.gitlab.gitlabauth.cache;
+
+import com.sonymobile.gitlab.model.GitLabAccessLevel;
+import com.sonymobile.gitlab.model.GitLabGroupInfo;
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.GitLabGroupMembers;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.sonymobile.jenkins.plugins.gitlab.gitlabauth.helpers.GitLabModelDataCreator.createGroupInfo;
+import static com.sonymobile.jenkins.plugins.gitlab.gitlabauth.helpers.MockDataLoaders.loadGroupMembers;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link CacheSnapshot}.
+ *
+ * @author Emil Nilsson
+ */
+public class CacheSnapshotTest {
+    /** The maximum age for snapshots used in the tests. */
+    private static final long MAX_AGE = 60 * 60 * 1000;
+
+    /** The URL of the GitLab server the snapshots are written for. */
+    private static final String SERVER_URL = "http://gitlab.example.com";
+
+    /** The time the snapshots are created. */
+    private static final long TIMESTAMP = 1400000000000L;
+
+    /** A temporary folder for the snapshot files. */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * Tests writing and reading a snapshot.
+     */
+    @Test
+    public void writeAndRead() throws Exception {
+        File file = new File(temporaryFolder.getRoot(), "snapshot");
+        createSnapshot().writeTo(file, SERVER_URL);
+
+        CacheSnapshot snapshot = CacheSnapshot.readFrom(file, SERVER_URL, MAX_AGE, TIMESTAMP + 1000);
+
+        assertThat(snapshot, is(notNullValue()));
+        assertThat(snapshot.getTimestamp(), is(TIMESTAMP));
+
+        assertThat(snapshot.getGroups().size(), is(2));
+        assertThat(snapshot.getGroups().get(0).getId(), is(1));
+        assertThat(snapshot.getGroups().get(0).getName(), is("Group Name"));
+        assertThat(snapshot.getGroups().get(1).getPath(), is("gruppnamn-åäö"));
+
+        GitLabGroupMembers members = snapshot.getGroupMembers().get(1);
+        assertThat(members, is(GitLabGroupMembers.fromMembers(loadGroupMembers(1))));
+        assertThat(members.getAccessLevel(3), is(GitLabAccessLevel.OWNER));
+        assertThat(members.isActiveMember(2), is(false));
+    }
+
+    /**
+     * Tests that snapshots older than the maximum age are discarded.
+     */
+    @Test
+    public void discardStaleSnapshot() throws Exception {
+        File file = new File(temporaryFolder.getRoot(), "snapshot");
+        createSnapshot().writeTo(file, SERVER_URL);
+
+        assertThat(CacheSnapshot.readFrom(file, SERVER_URL, MAX_AGE, TIMESTAMP + MAX_AGE + 1), is(nullValue()));
+        assertThat("snapshot from the future", CacheSnapshot.readFrom(file, SERVER_URL, MAX_AGE, TIMESTAMP - 1),
+                is(nullValue()));
+    }
+
+    /**
+     * Tests that snapshots of another GitLab server are discarded.
+     */
+    @Test
+    public void discardOtherServer() throws Exception {
+        File file = new File(temporaryFolder.getRoot(), "snapshot");
+        createSnapshot().writeTo(file, SERVER_URL);
+
+        assertThat(CacheSnapshot.readFrom(file, "http://other.example.com", MAX_AGE, TIMESTAMP + 1000),
+                is(nullValue()));
+    }
+
+    /**
+     * Tests that files with an unknown format are discarded.
+     */
+    @Test
+    public void discardUnknownFormat() throws Exception {
+        File file = temporaryFolder.newFile("snapshot");
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+        try {
+            out.writeInt(0xcafebabe);
+            out.writeShort(1);
+            out.writeLong(TIMESTAMP);
+        } finally {
+            out.close();
+        }
+
+        assertThat(CacheSnapshot.readFrom(file, SERVER_URL, MAX_AGE, TIMESTAMP), is(nullValue()));
+    }
+
+    /**
+     * Tests reading a missing snapshot file.
+     */
+    @Test
+    public void missingFile() throws Exception {
+        assertThat(CacheSnapshot.readFrom(new File(temporaryFolder.getRoot(), "missing"), SERVER_URL, MAX_AGE,
+                TIMESTAMP), is(nullValue()));
+    }
+
+    /**
+     * Creates a snapshot with two groups and the members of one of them.
+     *
+     * @return the snapshot
+     */
+    private CacheSnapshot createSnapshot() throws Exception {
+        Map<Integer, GitLabGroupMembers> groupMembers = new HashMap<Integer, GitLabGroupMembers>();
+        groupMembers.put(1, GitLabGroupMembers.fromMembers(loadGroupMembers(1)));
+
+        return new CacheSnapshot(TIMESTAMP, Arrays.<GitLabGroupInfo>asList(
+                createGroupInfo(1, "Group Name", "groupname"),
+                createGroupInfo(2, "Gruppnamn", "gruppnamn-åäö")), groupMembers);
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Andreas Alanko, Emil Nilsson, Sony Mobile Communications AB.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.sonymobile.jenkins.plugins.gitlab.gitlabauth.cache;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link LatencyRecorder}.
+ *
+ * @author Emil Nilsson
+ */
+public class LatencyRecorderTest {
+    /**
+     * Tests estimating percentiles.
+     */
+    @Test
+    public void getPercentileMillis() {
+        LatencyRecorder recorder = new LatencyRecorder();
+        assertThat(recorder.getPercentileMillis(50), is(0.0));
+
+        // 90 fast loads and 10 slow loads
+        for (int i = 0; i < 90; i++) {
+            recorder.record(TimeUnit.MILLISECONDS.toNanos(3));
+        }
+        for (int i = 0; i < 10; i++) {
+            recorder.record(TimeUnit.MILLISECONDS.toNanos(150));
+        }
+
+        assertThat(recorder.getCount(), is(100L));
+        assertThat(recorder.getPercentileMillis(50), is(5.0));
+        assertThat(recorder.getPercentileMillis(90), is(5.0));
+        assertThat(recorder.getPercentileMillis(99), is(150.0));
+        assertThat(recorder.getMaxMillis(), is(150.0));
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Andreas Alanko, Emil Nilsson, Sony Mobile Communications AB.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.sonymobile.jenkins.plugins.gitlab.gitlabauth.folder;
+
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.folder.FolderSynchronizationProgress.State;
+import net.sf.json.JSONObject;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link FolderSynchronizationProgress}.
+ *
+ * @author Emil Nilsson
+ */
+public class FolderSynchronizationProgressTest {
+    /**
+     * Tests recording the progress of a synchronization.
+     */
+    @Test
+    public void recordedProgress() {
+        FolderSynchronizationProgress progress = new FolderSynchronizationProgress();
+        progress.recordApiCalls(1);
+        progress.recordGroupsScanned(3);
+        progress.recordFolderCreated();
+        progress.recordFolderCreated();
+
+        assertThat(progress.isRunning(), is(true));
+
+        progress.finish(State.COMPLETED, null);
+
+        JSONObject json = progress.toJSON();
+        assertThat(json.getString("state"), is("COMPLETED"));
+        assertThat(json.getInt("apiCalls"), is(1));
+        assertThat(json.getInt("groupsScanned"), is(3));
+        assertThat(json.getInt("foldersCreated"), is(2));
+    }
+
+    /**
+     * Tests cancelling a synchronization.
+     */
+    @Test
+    public void cancel() {
+        FolderSynchronizationProgress progress = new FolderSynchronizationProgress();
+
+        assertThat(progress.requestCancel(), is(true));
+        assertThat(progress.isCancelRequested(), is(true));
+
+        progress.finish(State.CANCELLED, null);
+        // only the first state is kept
+        progress.finish(State.FAILED, "failure");
+
+        assertThat(progress.getState(), is(State.CANCELLED));
+        assertThat(progress.isRunning(), is(false));
+        assertThat(progress.requestCancel(), is(false));
+    }
+}
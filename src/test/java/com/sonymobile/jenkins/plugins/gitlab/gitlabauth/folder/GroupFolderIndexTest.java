@@ -0,0 +1,138 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Andreas Alanko, Emil Nilsson, Sony Mobile Communications AB.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.sonymobile.jenkins.plugins.gitlab.gitlabauth.folder;
+
+import com.cloudbees.hudson.plugins.folder.Folder;
+import hudson.model.TopLevelItem;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static com.sonymobile.jenkins.plugins.gitlab.gitlabauth.helpers.GitLabMatchers.hasGroupId;
+import static com.sonymobile.jenkins.plugins.gitlab.gitlabauth.helpers.MockDataCreators.mockFolderAuthorization;
+import static com.sonymobile.jenkins.plugins.gitlab.gitlabauth.helpers.MockFolderBuilder.folder;
+import static com.sonymobile.jenkins.plugins.gitlab.gitlabauth.helpers.MockFolderBuilder.mockFolder;
+import static com.sonymobile.jenkins.plugins.gitlab.gitlabauth.helpers.MockFreeStyleProjectBuilder.freeStyleProject;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link GroupFolderIndex}.
+ *
+ * @author Emil Nilsson
+ */
+public class GroupFolderIndexTest {
+    /** The index. */
+    private GroupFolderIndex index;
+
+    /** A group folder for group 1. */
+    private Folder group1;
+
+    /** A group folder for group 2. */
+    private Folder group2;
+
+    @Before
+    public void setUp() {
+        group1 = mockFolder().name("group1").addProperty(mockFolderAuthorization(1)).build();
+        group2 = mockFolder().name("group2").addProperty(mockFolderAuthorization(2)).build();
+
+        index = new GroupFolderIndex();
+        index.rebuild(Arrays.<TopLevelItem>asList(group2, folder("folder"), freeStyleProject("item"), group1));
+    }
+
+    /**
+     * Tests looking up the indexed group folders.
+     */
+    @Test
+    public void indexedFolders() {
+        assertThat(index.containsGroup(1), is(true));
+        assertThat(index.containsGroup(2), is(true));
+        assertThat(index.containsGroup(3), is(false));
+        assertThat(index.getFolder(2), is(sameInstance(group2)));
+        assertThat(index.getFolders(), contains(group1, group2));
+        assertThat(new ArrayList<GroupFolderInfo>(index.getGroupFolders().values()),
+                contains(hasGroupId(1), hasGroupId(2)));
+    }
+
+    /**
+     * Tests updating the index when a folder property is added.
+     */
+    @Test
+    public void addedProperty() throws Exception {
+        Folder folder = folder("group3");
+        index.update(folder);
+        assertThat(index.containsGroup(3), is(false));
+
+        folder.addProperty(mockFolderAuthorization(3));
+        index.update(folder);
+
+        assertThat(index.getFolder(3), is(sameInstance(folder)));
+    }
+
+    /**
+     * Tests that folders which property has no valid group ID aren't indexed.
+     */
+    @Test
+    public void invalidGroupId() throws Exception {
+        Folder folder = mockFolder().name("folder").addProperty(mockFolderAuthorization(0)).build();
+        index.update(folder);
+
+        assertThat(index.containsGroup(0), is(false));
+        assertThat(index.getFolders(), contains(group1, group2));
+        assertThat(index.getGroupFolders().keySet(), contains(1, 2));
+    }
+
+    /**
+     * Tests removing a folder from the index.
+     */
+    @Test
+    public void removedFolder() {
+        index.remove(group1);
+
+        assertThat(index.getFolder(1), is(nullValue()));
+        assertThat(index.getFolders(), contains(group2));
+    }
+
+    /**
+     * Tests that updating an indexed folder or removing an item which isn't indexed keeps the index intact.
+     */
+    @Test
+    public void updatedFolder() {
+        index.update(group1);
+        index.remove(folder("folder"));
+
+        assertThat(index.getFolder(1), is(sameInstance(group1)));
+        assertThat(index.getFolders(), contains(group1, group2));
+
+        index.remove(group1);
+        assertThat(index.containsGroup(1), is(false));
+    }
+}
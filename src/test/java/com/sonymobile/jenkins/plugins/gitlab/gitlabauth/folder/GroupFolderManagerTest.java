@@ -220,6 +220,35 @@ public class GroupFolderManagerTest implements GroupFolderManager.ManagesGroupPr
         assertThat("group ID not set correctly", folderProperty, hasGroupId(2));
     }
 
+    /**
+     * Tests creating several new GitLab group folders which are saved together.
+     */
+    @Test
+    public void createSeveralFolders() throws Exception {
+        addGroups(
+                mockGroupInfo(1, "Group 1", "group1"),
+                mockGroupInfo(2, "Group 2", "group2"),
+                mockGroupInfo(3, "Group 3", "group3"));
+
+        List<Folder> newFolders = new ArrayList<Folder>();
+        for (GitLabGroupInfo group : groups) {
+            Folder folder = folder(group.getPath());
+            expect(itemGroup.createProject(folderDescriptor, group.getPath(), true)).andReturn(folder);
+            newFolders.add(folder);
+        }
+        replay(itemGroup);
+
+        folderManager.createFolders(groups);
+
+        verify(itemGroup);
+
+        for (int i = 0; i < newFolders.size(); i++) {
+            GitLabFolderAuthorization folderProperty =
+                    newFolders.get(i).getProperties().get(GitLabFolderAuthorization.class);
+            assertThat("group ID not set correctly", folderProperty, hasGroupId(i + 1));
+        }
+    }
+
     /**
      * Tests creating new GitLab group folders when the item name collides with another item.
      */
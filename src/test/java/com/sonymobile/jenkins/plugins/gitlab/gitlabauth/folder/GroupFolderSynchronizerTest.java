@@ -185,6 +185,27 @@ public class GroupFolderSynchronizerTest {
         verify(itemGroup);
     }
 
+    /**
+     * Tests that a group which item name collides with another item counts as processed.
+     */
+    @Test
+    public void withNameCollision() throws Exception {
+        groups.add(mockGroupInfo(1, "Folder 1", "folder1"));
+        groups.add(mockGroupInfo(2, "Folder 2", "folder2"));
+
+        Folder folder = folder("folder2");
+        expect(itemGroup.createProject(folderDescriptor, "folder1", true))
+                .andThrow(new IllegalArgumentException("folder1 already exists"));
+        expect(itemGroup.createProject(folderDescriptor, "folder2", true)).andReturn(folder);
+
+        replay(itemGroup);
+
+        assertThat(synchronizer.synchronize(), is(true));
+
+        // verify that itemGroup#createProject was called for both folders
+        verify(itemGroup);
+    }
+
     /**
      * Concrete implementation of {@link GroupFolderSynchronizer} for testing.
      */
@@ -198,10 +219,11 @@ public class GroupFolderSynchronizerTest {
         /**
          * Synchronizes the group from the groups list.
          *
+         * @return true if all groups were processed
          * @throws GitLabApiException if the connection against GitLab failed
          */
-        public void synchronize() throws GitLabApiException {
-            synchronizeGroupFolders(groups);
+        public boolean synchronize() throws GitLabApiException {
+            return synchronizeGroupFolders(groups);
         }
 
         /**
@@ -0,0 +1,111 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Andreas Alanko, Emil Nilsson, Sony Mobile Communications AB.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.sonymobile.jenkins.plugins.gitlab.gitlabauth.folder;
+
+import org.junit.Test;
+
+import static com.sonymobile.jenkins.plugins.gitlab.gitlabauth.helpers.MockDataCreators.mockGroupInfo;
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link GroupSetFingerprint}.
+ *
+ * @author Emil Nilsson
+ */
+public class GroupSetFingerprintTest {
+    /**
+     * Tests that the order of the groups doesn't matter.
+     */
+    @Test
+    public void sameGroups() {
+        GroupSetFingerprint previous = new GroupSetFingerprint(asList(
+                mockGroupInfo(1, "Group 1", "group1"),
+                mockGroupInfo(2, "Group 2", "group2")));
+        GroupSetFingerprint current = new GroupSetFingerprint(asList(
+                mockGroupInfo(2, "Group 2", "group2"),
+                mockGroupInfo(1, "Group 1", "group1")));
+
+        assertThat(current.hasSameGroups(previous), is(true));
+        assertThat(current.getAddedGroupIds(previous), is(empty()));
+        assertThat(current.getRenamedGroupIds(previous), is(empty()));
+        assertThat(current.getRemovedGroupIds(previous), is(empty()));
+    }
+
+    /**
+     * Tests finding added, renamed and removed groups.
+     */
+    @Test
+    public void changedGroups() {
+        GroupSetFingerprint previous = new GroupSetFingerprint(asList(
+                mockGroupInfo(1, "Group 1", "group1"),
+                mockGroupInfo(2, "Group 2", "group2"),
+                mockGroupInfo(3, "Group 3", "group3")));
+        GroupSetFingerprint current = new GroupSetFingerprint(asList(
+                mockGroupInfo(1, "Group 1", "group1"),
+                mockGroupInfo(2, "Group 2", "renamed"),
+                mockGroupInfo(4, "Group 4", "group4")));
+
+        assertThat(current.hasSameGroups(previous), is(false));
+        assertThat(current.getAddedGroupIds(previous), contains(4));
+        assertThat(current.getRenamedGroupIds(previous), contains(2));
+        assertThat(current.getRemovedGroupIds(previous), contains(3));
+    }
+
+    /**
+     * Tests that all groups are new compared to the empty fingerprint.
+     */
+    @Test
+    public void firstSynchronization() {
+        GroupSetFingerprint current = new GroupSetFingerprint(asList(
+                mockGroupInfo(2, "Group 2", "group2"),
+                mockGroupInfo(1, "Group 1", "group1")));
+
+        assertThat(current.hasSameGroups(GroupSetFingerprint.EMPTY), is(false));
+        assertThat(current.getAddedGroupIds(GroupSetFingerprint.EMPTY), contains(1, 2));
+    }
+
+    /**
+     * Tests that groups are spread over all slices.
+     */
+    @Test
+    public void slices() {
+        int[] groupCounts = new int[4];
+        for (int groupId = 1; groupId <= 1000; groupId++) {
+            int slice = GroupSetFingerprint.getSlice(groupId, groupCounts.length);
+            assertThat(GroupSetFingerprint.getSlice(groupId, groupCounts.length), is(slice));
+            groupCounts[slice]++;
+        }
+
+        for (int groupCount : groupCounts) {
+            assertThat(groupCount > 150, is(true));
+        }
+        assertThat(GroupSetFingerprint.getSlice(42, 1), is(0));
+    }
+}
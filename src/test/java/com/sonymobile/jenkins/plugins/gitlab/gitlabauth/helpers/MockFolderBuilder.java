@@ -129,6 +129,10 @@ public class MockFolderBuilder extends MockTopLevelItemBuilder<Folder, MockFolde
             }
         }).anyTimes();
 
+        // mock saving the folder
+        folder.save();
+        expectLastCall().anyTimes();
+
         replay(propertyList);
 
         return folder;
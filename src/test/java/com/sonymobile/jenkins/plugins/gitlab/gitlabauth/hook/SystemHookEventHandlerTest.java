@@ -0,0 +1,134 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Andreas Alanko, Emil Nilsson, Sony Mobile Communications AB.
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.sonymobile.jenkins.plugins.gitlab.gitlabauth.hook;
+
+import com.sonymobile.gitlab.model.GitLabAccessLevel;
+import com.sonymobile.jenkins.plugins.gitlab.gitlabauth.GitLab;
+import net.sf.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.easymock.EasyMock.expect;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.powermock.api.easymock.PowerMock.expectLastCall;
+import static org.powermock.api.easymock.PowerMock.mockStatic;
+import static org.powermock.api.easymock.PowerMock.replay;
+import static org.powermock.api.easymock.PowerMock.verify;
+
+/**
+ * Tests for {@link SystemHookEventHandler}.
+ *
+ * @author Emil Nilsson
+ */
+@RunWith(PowerMockRunner.class)
+@PrepareForTest(GitLab.class)
+public class SystemHookEventHandlerTest {
+    /** The handler to test. */
+    private SystemHookEventHandler handler;
+
+    /**
+     * Prepares tests by mocking the GitLab facade.
+     */
+    @Before
+    public void setUp() {
+        mockStatic(GitLab.class);
+        handler = new SystemHookEventHandler();
+    }
+
+    @Test
+    public void userAddToGroup() {
+        GitLab.invalidateGroup(2);
+        expectLastCall().once();
+        GitLab.invalidateGroupsAsUser(1);
+        expectLastCall().once();
+        replay(GitLab.class);
+
+        assertThat(handler.handle(JSONObject.fromObject(
+                "{\"event_name\": \"user_add_to_group\", \"group_id\": 2, \"user_id\": 1, " +
+                        "\"group_access\": \"Developer\", \"group_path\": \"groupname\"}")), is(true));
+
+        verify(GitLab.class);
+    }
+
+    @Test
+    public void groupRename() {
+        GitLab.invalidateGroups();
+        expectLastCall().once();
+        replay(GitLab.class);
+
+        assertThat(handler.handle(JSONObject.fromObject(
+                "{\"event_name\": \"group_rename\", \"group_id\": 2, \"path\": \"newpath\"}")), is(true));
+
+        verify(GitLab.class);
+    }
+
+    @Test
+    public void userDestroy() {
+        Map<Integer, GitLabAccessLevel> memberships = new HashMap<Integer, GitLabAccessLevel>();
+        memberships.put(2, GitLabAccessLevel.DEVELOPER);
+        memberships.put(3, GitLabAccessLevel.OWNER);
+
+        expect(GitLab.getGroupMemberships(1)).andReturn(memberships);
+        // should only invalidate the groups the user was a member of
+        GitLab.invalidateGroup(2);
+        expectLastCall().once();
+        GitLab.invalidateGroup(3);
+        expectLastCall().once();
+        GitLab.invalidateUser(1);
+        expectLastCall().once();
+        replay(GitLab.class);
+
+        assertThat(handler.handle(JSONObject.fromObject("{\"event_name\": \"user_destroy\", \"user_id\": 1}")),
+                is(true));
+
+        verify(GitLab.class);
+    }
+
+    @Test
+    public void ignoredEvent() {
+        // should not touch the caches
+        replay(GitLab.class);
+
+        assertThat(handler.handle(JSONObject.fromObject(
+                "{\"event_name\": \"project_create\", \"project_id\": 74}")), is(false));
+
+        verify(GitLab.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void missingGroupId() {
+        replay(GitLab.class);
+
+        handler.handle(JSONObject.fromObject("{\"event_name\": \"user_remove_from_group\", \"user_id\": 1}"));
+    }
+}